@@ -11,7 +11,6 @@ import android.support.annotation.IdRes;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.NonNull;
 import android.support.v4.view.ViewCompat;
-import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
@@ -27,6 +26,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import eu.davidea.flexibleadapter.R;
+import eu.davidea.flexibleadapter.common.ScrollCoordinator;
 
 /**
  * Class taken from GitHub, customized and optimized for FlexibleAdapter project.
@@ -47,7 +47,7 @@ public class FastScroller extends FrameLayout {
     private boolean isInitialized = false;
     private ObjectAnimator currentAnimator;
     private RecyclerView recyclerView;
-    private LinearLayoutManager layoutManager;
+    private ScrollCoordinator scrollCoordinator;
     private BubbleTextCreator bubbleTextCreator;
     private List<ScrollStateChangeListener> scrollerListeners = new ArrayList<ScrollStateChangeListener>();
 
@@ -86,7 +86,7 @@ public class FastScroller extends FrameLayout {
     public void setRecyclerView(RecyclerView recyclerView) {
         this.recyclerView = recyclerView;
         this.recyclerView.addOnScrollListener(onScrollListener);
-        this.layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        this.scrollCoordinator = ScrollCoordinator.of(recyclerView);
 
         if (recyclerView.getAdapter() instanceof BubbleTextCreator)
             this.bubbleTextCreator = (BubbleTextCreator) recyclerView.getAdapter();
@@ -238,7 +238,7 @@ public class FastScroller extends FrameLayout {
             //String bubbleText = bubbleTextCreator.onCreateBubbleText(targetPos);
             //String bubbleText = bubbleTextCreator.onCreateBubbleText(itemCount);
             String bubbleText = getBubbleTextString(targetPos);
-            layoutManager.scrollToPositionWithOffset(targetPos, 0);
+            scrollCoordinator.scrollToPositionWithOffset(targetPos, 0);
             if (bubble != null)
                 bubble.setText(bubbleText);
         }
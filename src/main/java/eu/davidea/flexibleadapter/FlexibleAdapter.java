@@ -24,7 +24,6 @@ import android.support.annotation.CallSuper;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.helper.ItemTouchHelper;
 import android.util.Log;
@@ -36,10 +35,16 @@ import android.view.ViewGroup;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import eu.davidea.flexibleadapter.common.SmoothScrollLinearLayoutManager;
 import eu.davidea.flexibleadapter.helpers.ItemTouchHelperCallback;
@@ -47,7 +52,13 @@ import eu.davidea.flexibleadapter.items.IExpandable;
 import eu.davidea.flexibleadapter.items.IFilterable;
 import eu.davidea.flexibleadapter.items.IFlexible;
 import eu.davidea.flexibleadapter.items.IHeader;
+import eu.davidea.flexibleadapter.items.ILazyExpandable;
+import eu.davidea.flexibleadapter.items.ISearchable;
 import eu.davidea.flexibleadapter.items.ISectionable;
+import eu.davidea.flexibleadapter.items.IVersionedExpandable;
+import eu.davidea.flexibleadapter.utils.ChunkedList;
+import eu.davidea.flexibleadapter.utils.LongIntHashMap;
+import eu.davidea.flexibleadapter.utils.TreeList;
 import eu.davidea.viewholders.ExpandableViewHolder;
 import eu.davidea.viewholders.FlexibleViewHolder;
 
@@ -89,6 +100,7 @@ public class FlexibleAdapter<T extends IFlexible>
 	private static final String EXTRA_PARENT = TAG + "_parentSelected";
 	private static final String EXTRA_CHILD = TAG + "_childSelected";
 	private static final String EXTRA_HEADERS = TAG + "_headersShown";
+	private static final String EXTRA_EXPANDED = TAG + "_expandedIds";
 	public static final int EXPANDABLE_VIEW_TYPE = -1;
 	public static final int SECTION_VIEW_TYPE = -2;
 	public static final long UNDO_TIMEOUT = 5000L;
@@ -98,6 +110,53 @@ public class FlexibleAdapter<T extends IFlexible>
 	 */
 	private List<T> mItems;
 
+	/**
+	 * Optional index to resolve the global position of an item in constant time.
+	 */
+	private PositionIndex mPositionIndex;
+
+	/**
+	 * Start of the sections, to resolve the sticky header of a position in logarithmic time.
+	 */
+	private final SectionIndex<T> mSectionIndex = new SectionIndex<T>();
+
+	/**
+	 * Parent of each child of the expanded items, rebuilt lazily after bulk changes.
+	 * Children are matched by {@code equals()}, as the scan of the subItems did.
+	 */
+	private Map<T, IExpandable> mParents = new HashMap<T, IExpandable>();
+	private boolean parentsValid = false;
+
+	/**
+	 * SubItems not hidden of each {@link IVersionedExpandable}, valid until the expandable
+	 * changes its version or the Adapter changes the hidden flags or the items pending removal.
+	 */
+	private Map<IExpandable, SubItemsCache> mSubItemsCache = new IdentityHashMap<IExpandable, SubItemsCache>();
+	private int mSubItemsVersion = 0;
+
+	/**
+	 * Number of selected subItems of each parent and parent of each selected subItem, by
+	 * position: updated by the selection and by the shift of the positions, rebuilt lazily
+	 * only when the selected positions don't follow the items.
+	 */
+	private Map<IExpandable, Integer> mSelectedChildren = new IdentityHashMap<IExpandable, Integer>();
+	private Map<Integer, IExpandable> mSelectedParents = new HashMap<Integer, IExpandable>();
+	private boolean selectedChildrenValid = false;
+
+	/**
+	 * Optional immutable copy of the items, for the readers on other threads.
+	 */
+	private volatile ItemsSnapshot<T> mSnapshot;
+	private Handler mSnapshotHandler;
+	private long mSnapshotVersion = 0L;
+	private boolean snapshotPending = false;
+	private final Runnable mPublishSnapshot = new Runnable() {
+		@Override
+		public void run() {
+			publishSnapshot();
+		}
+	};
+
 	/**
 	 * Header/Section items
 	 */
@@ -108,7 +167,10 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * Handler for delayed {@link #filterItems(List)} and {@link OnDeleteCompleteListener#onDeleteConfirmed}
 	 * <p>You can override this Handler, but you must keep the "What" already used:
 	 * <br/>0 = filterItems delay
-	 * <br/>1 = deleteConfirmed when Undo timeout is over</p>
+	 * <br/>1 = deleteConfirmed when Undo timeout is over
+	 * <br/>2 = apply the result of the filter computed by the Executor
+	 * <br/>3 = display the subItems loaded by the {@link SubItemsLoader}
+	 * <br/>4 = display the next page of subItems, when the load more item is bound</p>
 	 */
 	protected Handler mHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
 		public boolean handleMessage(Message message) {
@@ -121,6 +183,18 @@ public class FlexibleAdapter<T extends IFlexible>
 					if (listener != null) listener.onDeleteConfirmed();
 					emptyBin();
 					return true;
+				case 2: //apply filter result
+					FilterTask task = (FilterTask) message.obj;
+					if (task.generation == mFilterGeneration) applyFilter(task);
+					return true;
+				case 3: //subItems loaded
+					LoadTask loadTask = (LoadTask) message.obj;
+					if (mLoadTasks.get(loadTask.expandable) == loadTask) onSubItemsLoaded(loadTask);
+					return true;
+				case 4: //load more subItems
+					SubItemsPage page = (SubItemsPage) message.obj;
+					if (mPages.get(page.expandable) == page) loadMoreSubItems(page.expandable);
+					return true;
 			}
 			return false;
 		}
@@ -131,23 +205,93 @@ public class FlexibleAdapter<T extends IFlexible>
 	 */
 	private List<RestoreInfo> mRestoreList;
 	private StickyHeaderDecoration stickyHeaderDecoration;
-	private boolean restoreSelection = false, multiRange = false,
+	private boolean restoreSelection = false,
 			removeOrphanHeaders = false, permanentDelete = false, adjustSelected = true;
 
+	/* Batch of notifications */
+	private NotificationBatch mBatch;
+	private int mBatchDepth = 0, mBatchInitialCount;
+	private boolean batchDispatching = false;
+	//Forwards the merged notifications of the batch to the RecyclerView
+	private final RecyclerView.AdapterDataObserver mBatchDispatcher = new RecyclerView.AdapterDataObserver() {
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			notifyItemRangeChanged(positionStart, itemCount, payload);
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			notifyItemRangeInserted(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			notifyItemRangeRemoved(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			notifyItemMoved(fromPosition, toPosition);
+		}
+	};
+
+	/* Differences */
+	private final ItemsDiff.ContentComparator<T> mContentComparator = new ItemsDiff.ContentComparator<T>() {
+		@Override
+		public boolean areContentsTheSame(T oldItem, T newItem) {
+			return areItemsContentsTheSame(oldItem, newItem);
+		}
+	};
+
 	/* ViewTypes */
 	protected LayoutInflater mInflater;
 	@SuppressLint("UseSparseArrays")//We can usually count Type instances on the fingers of a hand..
 	private HashMap<Integer, T> mTypeInstances = new HashMap<Integer, T>();
 	private boolean autoMap = false;
+	//True while the Adapter notifies a full refresh of a list already flattened
+	private boolean refreshing = false;
+	//True while the Adapter notifies its own changes, the others are made outside
+	private boolean notifying = false;
 
 	/* Filter */
 	private String mSearchText = "", mOldSearchText = "";
 	private boolean mNotifyChangeOfUnfilteredItems = false, filtering = false;
+	private Executor mFilterExecutor;
+	//Incremented at each new filter request, a query with an older value is stale
+	private volatile int mFilterGeneration = 0;
+	//Last applied filter, reused when the new search text narrows its search text
+	private FilterTask mLastFilter;
+	private boolean incrementalFilter = false;
+	private SearchIndex<T> mSearchIndex;
 
 	/* Expandable flags */
 	private boolean scrollOnExpand = false, collapseOnExpand = false,
 			childSelected = false, parentSelected = false;
 
+	/* Lazy expandable */
+	private SubItemsLoader<T> mSubItemsLoader;
+	private Executor mSubItemsExecutor;
+	//Loads in flight, by expandable
+	private Map<ILazyExpandable, LoadTask> mLoadTasks = new IdentityHashMap<ILazyExpandable, LoadTask>();
+	//Collapsed items whose subItems are kept loaded, in access order
+	private LinkedHashMap<ILazyExpandable, Boolean> mLoadedCache = new LinkedHashMap<ILazyExpandable, Boolean>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ILazyExpandable, Boolean> eldest) {
+			if (size() <= mLoadedCacheSize) return false;
+			ILazyExpandable expandable = eldest.getKey();
+			//The subItems of an expanded item are displayed, it enters again when collapsed
+			if (!expandable.isExpanded()) expandable.setLoadedSubItems(null);
+			return true;
+		}
+	};
+	private int mLoadedCacheSize = 20;
+
+	/* Paged subItems */
+	private SubItemsPager<T> mSubItemsPager;
+	private int mSubItemsPageSize = 0;
+	//Expanded items displaying their subItems by pages
+	private Map<IExpandable, SubItemsPage> mPages = new IdentityHashMap<IExpandable, SubItemsPage>();
+
 	/* Drag&Drop and Swipe helpers */
 	private boolean longPressDragEnabled = false, handleDragEnabled = true, swipeEnabled = false;
 	private ItemTouchHelperCallback mItemTouchHelperCallback;
@@ -177,8 +321,13 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * Main Constructor with all managed listeners for ViewHolder and the Adapter itself.
 	 * <p>The listener must be a single instance of a class, usually <i>Activity</i> or <i>Fragment</i>,
 	 * where you can implement how to handle the different events.</p>
-	 * Any write operation performed on the items list is <u>synchronized</u>.
+	 * The items list is not synchronized: it must be modified only from the main thread. Other
+	 * threads can read a consistent copy with {@link #getItemsSnapshot()}.
 	 * <p><b>PASS ALWAYS A <u>COPY</u> OF THE ORIGINAL LIST</b>: <i>new ArrayList&lt;T&gt;(originalList);</i></p>
+	 * For big expandable lists, prefer <i>new ChunkedList&lt;T&gt;(originalList);</i> so expand and
+	 * collapse in the middle of the list don't shift the whole tail. For deep multi level
+	 * expandable lists, prefer <i>new TreeList&lt;T&gt;(originalList);</i> so also the positions
+	 * of the items are resolved in logarithmic time.
 	 *
 	 * @param items     items to display
 	 * @param listeners can be an instance of:
@@ -189,7 +338,28 @@ public class FlexibleAdapter<T extends IFlexible>
 	 *                  <br/>- {@link OnItemSwipeListener}
 	 */
 	public FlexibleAdapter(@NonNull List<T> items, @Nullable Object listeners) {
-		mItems = Collections.synchronizedList(items);
+		this(items, listeners, false);
+	}
+
+	/**
+	 * Same as {@link #FlexibleAdapter(List, Object)}, but with the possibility to enable the
+	 * stable ids.
+	 * <p>With stable ids, {@link #getItemId(int)} returns {@link IFlexible#getStableId()} and
+	 * a full refresh with {@link #updateDataSet(List)} reuses the ViewHolders already bound
+	 * instead of recreating and rebinding the whole viewport. Stable ids cannot be changed
+	 * afterwards since the Adapter registers its observers here.</p>
+	 * <b>NOTE:</b> The stable ids are also used to key the position index.
+	 *
+	 * @param items     items to display
+	 * @param listeners same as in {@link #FlexibleAdapter(List, Object)}
+	 * @param stableIds true if each item returns a unique and stable id, false otherwise
+	 * @see IFlexible#getStableId()
+	 * @see #getGlobalPositionOfStableId(long)
+	 */
+	public FlexibleAdapter(@NonNull List<T> items, @Nullable Object listeners, boolean stableIds) {
+		super(stableIds);
+		mItems = items;
+		if (stableIds) mPositionIndex = new PositionIndex(true);
 		mRestoreList = new ArrayList<RestoreInfo>();
 		mOrphanHeaders = new ArrayList<IHeader>();
 
@@ -215,22 +385,94 @@ public class FlexibleAdapter<T extends IFlexible>
 	}
 
 	/**
-	 * Maps and expands items that are initially configured to be shown as expanded.
-	 * <p>This method is also called after a screen rotation.</p>
+	 * Displays the subItems of the items that are initially configured to be shown as expanded,
+	 * at every level, rebuilding the list in a single pass.
+	 * <p>This method is also called after a screen rotation and after a full refresh: the list
+	 * is not notified.</p>
 	 */
 	protected void initializeItems() {
-		for (int position = 0; position < mItems.size(); position++) {
-			T item = getItem(position);
-			//Map the view type if not done yet
-			//mapViewTypeFrom(item);
-			if (isExpandable(item)) {
-				IExpandable expandable = (IExpandable) item;
-				if (expandable.isExpanded()) {
-					if (DEBUG) Log.v(TAG, "Initially expand item on position " + position);
-					position += addAllSubItemsFrom(position, expandable, false, null);
+		flattenItems(null, null);
+	}
+
+	/**
+	 * Rebuilds the list in a single pass: the subItems already displayed are taken again from
+	 * their parents, so each expanded item is followed by its current subItems.
+	 *
+	 * @param expandedIds the stable ids of the items to expand, null to keep the current flags
+	 * @param lazyItems   collects the expanded {@link ILazyExpandable} items whose subItems are
+	 *                    not loaded: they are flagged collapsed and must be expanded afterwards
+	 *                    to start the load, null to only collapse them
+	 * @return true if the list changed, false otherwise
+	 */
+	private boolean flattenItems(@Nullable LongIntHashMap expandedIds, @Nullable List<T> lazyItems) {
+		selectedChildrenValid = false;
+		//Children displayed with the current flags
+		buildParents();
+		mPages.clear();
+		int size = mItems.size();
+		List<T> result = new ArrayList<T>(size);
+		Set<IHeader> detached = Collections.newSetFromMap(new IdentityHashMap<IHeader, Boolean>());
+		for (int position = 0; position < size; position++) {
+			T item = mItems.get(position);
+			if (mParents.containsKey(item)) continue;
+			//The header of a displayed child is displayed again before the same child
+			if (isHeader(item) && position + 1 < size) {
+				T next = mItems.get(position + 1);
+				if (mParents.containsKey(next) && getHeaderOf(next) == item) {
+					detached.add((IHeader) item);
+					continue;
 				}
 			}
+			appendFlattened(item, expandedIds, lazyItems, detached, result);
+		}
+		for (IHeader header : detached) {
+			header.setHidden(true);
+		}
+		invalidateParents();
+		boolean changed = result.size() != size;
+		for (int position = 0; !changed && position < size; position++) {
+			changed = result.get(position) != mItems.get(position);
+		}
+		if (changed) {
+			mItems.clear();
+			mItems.addAll(result);
+			invalidateItems(0);
+			if (DEBUG) Log.v(TAG, "Flattened items, itemCount=" + result.size());
+		}
+		return changed;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void appendFlattened(T item, LongIntHashMap expandedIds, List<T> lazyItems,
+								 Set<IHeader> detached, List<T> result) {
+		IHeader header = getHeaderOf(item);
+		if (header != null && detached.remove(header)) result.add((T) header);
+		result.add(item);
+		if (!isExpandable(item)) return;
+		IExpandable expandable = (IExpandable) item;
+		if (expandedIds != null) expandable.setExpanded(expandedIds.containsKey(item.getStableId()));
+		//SubItems still loading are displayed when loaded
+		if (!expandable.isExpanded() || mLoadTasks.containsKey(item)) return;
+		if (expandable instanceof ILazyExpandable && !((ILazyExpandable) expandable).isSubItemsLoaded()) {
+			expandable.setExpanded(false);
+			if (lazyItems != null) lazyItems.add(item);
+			return;
+		}
+		List<T> subItems = new ArrayList<T>();
+		T loadMoreItem = collectFirstPage(expandable, subItems);
+		for (T subItem : subItems) {
+			appendFlattened(subItem, expandedIds, lazyItems, detached, result);
 		}
+		if (loadMoreItem != null) result.add(loadMoreItem);
+	}
+
+	/**
+	 * Notifies a full refresh of a list already flattened.
+	 */
+	private void notifyRefreshed() {
+		refreshing = true;
+		notifyDataSetChanged();
+		refreshing = false;
 	}
 
 	/*------------------------------*/
@@ -251,17 +493,23 @@ public class FlexibleAdapter<T extends IFlexible>
 		T item = getItem(position);
 		//Allow selection only for selectable items
 		if (item != null && item.isSelectable()) {
-			boolean hasParent = getExpandableOf(item) != null;
+			IExpandable parent = getExpandableOf(item);
+			boolean hasParent = parent != null, toggled = false;
 			if ((isExpandable(item) || !hasParent) && !childSelected) {
 				//Allow selection of Parent if no Child has been previously selected
 				parentSelected = true;
 				super.toggleSelection(position);
+				toggled = true;
 				//TODO: Set selected for items
 			} else if (!parentSelected && hasParent) {
 				//Allow selection of Child if no Parent has been previously selected
 				childSelected = true;
 				super.toggleSelection(position);
+				toggled = true;
 			}
+			//Keep the counter of the selected subItems of the parent
+			if (toggled && hasParent && selectedChildrenValid)
+				countSelectedChild(position, parent, isSelected(position));
 		}
 
 		//Reset flags if necessary, just to be sure
@@ -289,6 +537,7 @@ public class FlexibleAdapter<T extends IFlexible>
 		} else {
 			super.selectAll(viewTypes);//Force the selection for the viewTypes passed
 		}
+		selectedChildrenValid = false;
 	}
 
 	@Override
@@ -296,6 +545,9 @@ public class FlexibleAdapter<T extends IFlexible>
 	public void clearSelection() {
 		parentSelected = childSelected = false;
 		super.clearSelection();
+		mSelectedChildren.clear();
+		mSelectedParents.clear();
+		selectedChildrenValid = true;
 	}
 
 	public boolean isAnyParentSelected() {
@@ -312,13 +564,171 @@ public class FlexibleAdapter<T extends IFlexible>
 
 	/**
 	 * This method will refresh the entire DataSet content.
+	 * <p>With stable ids enabled, the ViewHolders of the items that remain are reused.</p>
 	 *
 	 * @param items the new data set
+	 * @see #FlexibleAdapter(List, Object, boolean)
 	 */
 	public void updateDataSet(List<T> items) {
+		resetTreeState();
 		mItems = items;
-		notifyDataSetChanged();
+		if (mSearchIndex != null) mSearchIndex.retainAll(items);
+		invalidateParents();
+		invalidateItems(0);
+		List<T> lazyItems = new ArrayList<T>();
+		flattenItems(null, lazyItems);
+		//Pending notifications of a batch are superseded by the full refresh
+		if (isInBatch()) mBatch.clear();
+		notifyRefreshed();
 		showAllHeadersAfterRefresh();
+		expandLazyItems(lazyItems);
+	}
+
+	/**
+	 * Refreshes the DataSet with a new tree, optionally notifying only the differences.
+	 * <p>With animation, the items are matched by stable id, if {@link #hasStableIds()},
+	 * otherwise by {@code hashCode()} and {@code equals()}, at every level of the tree. The
+	 * expandable items that match an item of the current tree keep its expansion state, the new
+	 * ones are expanded as configured. The new tree is then flattened and compared with the
+	 * current list by {@link ItemsDiff}: only the changed subtrees are notified and the
+	 * ViewHolders of the items with the same content, see
+	 * {@link #areItemsContentsTheSame(IFlexible, IFlexible)}, are not bound again.</p>
+	 * The selection follows the matched items. The filter, the pages of subItems and the loads
+	 * in flight are reset as with {@link #updateDataSet(List)}.
+	 *
+	 * @param items   the new data set, the items of the first level: with animation they are
+	 *                copied and the list is not modified
+	 * @param animate true to notify only the differences, false to refresh the entire DataSet
+	 * @see #updateDataSet(List)
+	 */
+	public void updateDataSet(List<T> items, boolean animate) {
+		if (!animate) {
+			updateDataSet(items);
+			return;
+		}
+		//Expansion state of the current tree, by key
+		LongIntHashMap expandedIds = null;
+		Map<T, Boolean> expandedItems = null;
+		if (hasStableIds()) expandedIds = new LongIntHashMap(mItems.size());
+		else expandedItems = new HashMap<T, Boolean>();
+		Set<T> visited = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		for (T item : mItems) {
+			collectExpansion(item, expandedIds, expandedItems, visited);
+		}
+		resetTreeState();
+		if (mSearchIndex != null) mSearchIndex.retainAll(items);
+
+		//Flatten the new tree with the same expansion state
+		List<T> flattened = new ArrayList<T>(items.size());
+		List<T> lazyItems = new ArrayList<T>();
+		Set<IHeader> headers = Collections.newSetFromMap(new IdentityHashMap<IHeader, Boolean>());
+		for (T item : items) {
+			flattenTree(item, expandedIds, expandedItems, headers, lazyItems, flattened);
+		}
+		ItemsDiff<T> diff = new ItemsDiff<T>(mItems, flattened, hasStableIds(), false, mContentComparator);
+
+		//The selection follows the matched items
+		List<Integer> selectedPositions = getSelectedPositions();
+		for (int i = selectedPositions.size() - 1; i >= 0; i--) {
+			int position = diff.getNewPosition(selectedPositions.get(i));
+			if (position >= 0) selectedPositions.set(i, position);
+			else selectedPositions.remove(i);
+		}
+		mItems.clear();
+		mItems.addAll(diff.getResult());
+		invalidateItems(0);
+		invalidateParents();
+		//Selected positions are already remapped, the notifications must not shift them again
+		boolean wasFiltering = filtering;
+		filtering = true;
+		try {
+			dispatchDiff(diff, null);
+		} finally {
+			filtering = wasFiltering;
+		}
+		if (DEBUG) Log.v(TAG, "updateDataSet total in=" + flattened.size());
+
+		expandLazyItems(lazyItems);
+	}
+
+	/**
+	 * Expands the items collected while flattening the tree, their subItems are displayed
+	 * when loaded.
+	 */
+	private void expandLazyItems(List<T> lazyItems) {
+		for (T item : lazyItems) {
+			int position = getGlobalPositionOf(item);
+			if (position >= 0) expand(position, true);
+		}
+	}
+
+	/**
+	 * Discards the state bound to the current tree: filter, loads in flight, pages and
+	 * cached subItems.
+	 */
+	private void resetTreeState() {
+		cancelFilter();
+		//Placeholders of the loads in flight belong to the old list
+		for (LoadTask task : mLoadTasks.values()) {
+			task.cancelled = true;
+			task.expandable.setExpanded(false);
+		}
+		mLoadTasks.clear();
+		mPages.clear();
+		mSubItemsCache.clear();
+		mLastFilter = null;
+		selectedChildrenValid = false;
+	}
+
+	private void collectExpansion(T item, LongIntHashMap expandedIds, Map<T, Boolean> expandedItems,
+								  Set<T> visited) {
+		if (!isExpandable(item) || !visited.add(item)) return;
+		IExpandable expandable = (IExpandable) item;
+		if (expandedIds != null) expandedIds.put(item.getStableId(), expandable.isExpanded() ? 1 : 0);
+		else expandedItems.put(item, expandable.isExpanded());
+		if (hasSubItems(expandable)) {
+			List<T> subItems = expandable.getSubItems();
+			for (T subItem : subItems) {
+				collectExpansion(subItem, expandedIds, expandedItems, visited);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void flattenTree(T item, LongIntHashMap expandedIds, Map<T, Boolean> expandedItems,
+							 Set<IHeader> headers, List<T> lazyItems, List<T> result) {
+		//The header is displayed before the first item of its section
+		if (headersShown) {
+			IHeader header = getHeaderOf(item);
+			if (header != null && headers.add(header)) {
+				header.setHidden(false);
+				result.add((T) header);
+			}
+		}
+		if (isHeader(item)) headers.add((IHeader) item);
+		result.add(item);
+		if (!isExpandable(item)) return;
+
+		IExpandable expandable = (IExpandable) item;
+		if (expandedIds != null) {
+			int expanded = expandedIds.get(item.getStableId(), -1);
+			if (expanded >= 0) expandable.setExpanded(expanded == 1);
+		} else {
+			Boolean expanded = expandedItems.get(item);
+			if (expanded != null) expandable.setExpanded(expanded);
+		}
+		if (!expandable.isExpanded()) return;
+		if (expandable instanceof ILazyExpandable && !((ILazyExpandable) expandable).isSubItemsLoaded()) {
+			expandable.setExpanded(false);
+			lazyItems.add(item);
+			return;
+		}
+		List<T> subItems = new ArrayList<T>();
+		T loadMoreItem = collectFirstPage(expandable, subItems);
+		for (T subItem : subItems) {
+			flattenTree(subItem, expandedIds, expandedItems, headers, lazyItems, result);
+		}
+		if (loadMoreItem != null) result.add(loadMoreItem);
 	}
 
 	/**
@@ -333,8 +743,19 @@ public class FlexibleAdapter<T extends IFlexible>
 		return mItems.get(position);
 	}
 
+	/**
+	 * Returns the stable id of the item if stable ids are enabled, the position otherwise.
+	 *
+	 * @param position the adapter position
+	 * @return the stable id of the item or the position itself
+	 * @see IFlexible#getStableId()
+	 */
 	@Override
 	public long getItemId(int position) {
+		if (hasStableIds()) {
+			T item = getItem(position);
+			return item != null ? item.getStableId() : RecyclerView.NO_ID;
+		}
 		return position;
 	}
 
@@ -385,12 +806,47 @@ public class FlexibleAdapter<T extends IFlexible>
 
 	/**
 	 * Retrieve the global position of the Item in the Adapter list.
+	 * <p>If the position index is enabled the position is resolved in constant time, otherwise
+	 * the list is linearly scanned.</p>
 	 *
 	 * @param item the item to find
 	 * @return the global position in the Adapter if found, -1 otherwise
+	 * @see #setPositionIndexEnabled(boolean)
 	 */
 	public int getGlobalPositionOf(@NonNull IFlexible item) {
-		return item != null && mItems != null && mItems.size() > 0 ? mItems.indexOf(item) : -1;
+		if (item == null || mItems == null || mItems.isEmpty()) return -1;
+		//The tree backing list resolves the position in logarithmic time
+		if (mPositionIndex == null || mItems instanceof TreeList) return mItems.indexOf(item);
+		int position = mPositionIndex.indexOf(mItems, item);
+		if (DEBUG) {
+			//Consistency check against the linear scan
+			int scanPosition = mItems.indexOf(item);
+			if (scanPosition != position) {
+				Log.e(TAG, "PositionIndex inconsistency for " + item + ": indexed position " +
+						position + " but scan position " + scanPosition + ". Index is reset!");
+				mPositionIndex.clear();
+				return scanPosition;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Retrieve the global position of the Item with the given stable id.
+	 * <p>Available only if stable ids are enabled: the position is resolved in constant time
+	 * through a primitive map, no boxing occurs.</p>
+	 *
+	 * @param stableId the stable id of the item to find
+	 * @return the global position in the Adapter if found, -1 otherwise
+	 * @throws IllegalStateException if stable ids are not enabled
+	 * @see #FlexibleAdapter(List, Object, boolean)
+	 */
+	public int getGlobalPositionOfStableId(long stableId) {
+		if (!hasStableIds()) {
+			throw new IllegalStateException("Stable ids are not enabled. Use the constructor with stableIds=true.");
+		}
+		if (mItems == null || mItems.isEmpty()) return -1;
+		return mPositionIndex.indexOfStableId(mItems, stableId);
 	}
 
 	/**
@@ -400,7 +856,225 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * @return true if the provided item is currently displayed, false otherwise
 	 */
 	public boolean contains(@NonNull T item) {
-		return item != null && mItems != null && mItems.contains(item);
+		return getGlobalPositionOf(item) >= 0;
+	}
+
+	/**
+	 * @return true if the global positions are resolved by the index, false if by linear scan
+	 * @see #setPositionIndexEnabled(boolean)
+	 */
+	public boolean isPositionIndexEnabled() {
+		return mPositionIndex != null;
+	}
+
+	/**
+	 * Enables an internal index to resolve {@link #getGlobalPositionOf(IFlexible)} and
+	 * {@link #contains(IFlexible)} in constant time, instead of scanning the whole list.
+	 * <p>The index is kept up to date by every operation of the Adapter that modifies the list.
+	 * Useful for big lists, where these methods are called in loops (headers linkage,
+	 * restoration, sticky headers, filter).</p>
+	 * <b>NOTE:</b> The items must implement {@code hashCode()} consistently with
+	 * {@code equals()}. When DEBUG logs are enabled, every lookup is verified with a linear scan.
+	 * <p>If stable ids are enabled, the index is always active and keyed by stable id: this
+	 * setting is then ignored.</p>
+	 * Default value is false.
+	 *
+	 * @param enabled true to resolve positions with the index, false to scan the list
+	 * @return this adapter so the call can be chained
+	 */
+	public FlexibleAdapter setPositionIndexEnabled(boolean enabled) {
+		if (hasStableIds()) return this;
+		if (enabled && mPositionIndex == null) {
+			mPositionIndex = new PositionIndex(false);
+		} else if (!enabled) {
+			mPositionIndex = null;
+		}
+		return this;
+	}
+
+	/**
+	 * @return true if the snapshots of the items are published, false otherwise
+	 * @see #setSnapshotsEnabled(boolean)
+	 */
+	public boolean isSnapshotsEnabled() {
+		return mSnapshotHandler != null;
+	}
+
+	/**
+	 * Enables the publication of an immutable copy of the items after each committed mutation.
+	 * <p>The list of the Adapter is read and written by the main thread without any lock.
+	 * Readers on other threads (exporters, samplers) must use {@link #getItemsSnapshot()}
+	 * instead of {@link #getItem(int)}: they never contend with the main thread and the
+	 * version of the snapshot tells them if the content changed.</p>
+	 * The copy is published once, at the end of the current main thread message, even if the
+	 * operation performed multiple changes.
+	 * <p>Default value is false.</p>
+	 *
+	 * @param enabled true to publish the snapshots, false to stop and release the last one
+	 * @return this adapter so the call can be chained
+	 */
+	public FlexibleAdapter setSnapshotsEnabled(boolean enabled) {
+		if (enabled && mSnapshotHandler == null) {
+			mSnapshotHandler = new Handler(Looper.getMainLooper());
+			publishSnapshot();
+		} else if (!enabled && mSnapshotHandler != null) {
+			mSnapshotHandler.removeCallbacks(mPublishSnapshot);
+			mSnapshotHandler = null;
+			snapshotPending = false;
+			mSnapshot = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the last published copy of the items. Can be called from any thread.
+	 * <p>When called from the main thread, a pending change is published immediately.</p>
+	 *
+	 * @return the last snapshot of the items, null if snapshots are not enabled
+	 * @see #setSnapshotsEnabled(boolean)
+	 */
+	@Nullable
+	public ItemsSnapshot<T> getItemsSnapshot() {
+		if (Looper.myLooper() == Looper.getMainLooper() && snapshotPending) {
+			publishSnapshot();
+		}
+		return mSnapshot;
+	}
+
+	private void publishSnapshot() {
+		if (mSnapshotHandler == null) return;
+		mSnapshotHandler.removeCallbacks(mPublishSnapshot);
+		snapshotPending = false;
+		mSnapshot = new ItemsSnapshot<T>(mItems.toArray(), ++mSnapshotVersion);
+		if (DEBUG) Log.v(TAG, "Published snapshot version " + mSnapshotVersion);
+	}
+
+	/*---------------*/
+	/* BATCH METHODS */
+	/*---------------*/
+
+	/**
+	 * @return true if a batch is currently open, false otherwise
+	 * @see #beginBatch()
+	 */
+	public boolean isInBatch() {
+		return mBatchDepth > 0;
+	}
+
+	/**
+	 * Opens a batch of changes: all the notifications of the following operations (add, remove,
+	 * update, move, expand, collapse, selection) are recorded and merged into the smallest set
+	 * of range notifications, dispatched by {@link #commitBatch()}.
+	 * <p>Selected positions are adjusted while recording, so they are always coherent with the
+	 * list. {@link OnUpdateListener#onUpdateEmptyView(int)} is called only once, at the
+	 * commit.</p>
+	 * Batches can be nested: notifications are dispatched when the outermost batch is committed.
+	 * <p><b>NOTE:</b> The batch must be committed in the same main thread message where it was
+	 * opened, the RecyclerView cannot layout with pending notifications. Prefer
+	 * {@link #batch(Runnable)}.</p>
+	 *
+	 * @see #commitBatch()
+	 * @see #batch(Runnable)
+	 */
+	public void beginBatch() {
+		if (mBatchDepth++ == 0) {
+			if (mBatch == null) mBatch = new NotificationBatch();
+			mBatchInitialCount = getItemCount();
+			if (DEBUG) Log.v(TAG, "beginBatch itemCount=" + mBatchInitialCount);
+		}
+	}
+
+	/**
+	 * Closes the batch opened with {@link #beginBatch()}. When the outermost batch is committed,
+	 * the merged notifications are dispatched.
+	 *
+	 * @throws IllegalStateException if no batch is open
+	 */
+	public void commitBatch() {
+		if (mBatchDepth == 0) {
+			throw new IllegalStateException("commitBatch called without beginBatch");
+		}
+		if (--mBatchDepth > 0) return;
+		batchDispatching = true;
+		int dispatched;
+		try {
+			dispatched = mBatch.dispatch(mBatchDispatcher);
+		} finally {
+			batchDispatching = false;
+		}
+		if (DEBUG) Log.v(TAG, "commitBatch dispatched " + dispatched + " notifications");
+		//Call listener to update EmptyView
+		if (mUpdateListener != null && mBatchInitialCount != getItemCount())
+			mUpdateListener.onUpdateEmptyView(getItemCount());
+	}
+
+	/**
+	 * Performs the operations in a batch, the batch is committed also if an exception is thrown.
+	 * <p>Example: applying hundreds of changes pushed by a server, results in few range
+	 * notifications and a single layout pass.</p>
+	 *
+	 * @param operations the operations to perform on the Adapter
+	 * @see #beginBatch()
+	 */
+	public void batch(@NonNull Runnable operations) {
+		beginBatch();
+		try {
+			operations.run();
+		} finally {
+			commitBatch();
+		}
+	}
+
+	/*
+	 * Internal notifications: recorded if a batch is open, dispatched otherwise.
+	 */
+
+	private void notifyInserted(int positionStart, int itemCount) {
+		if (isInBatch()) {
+			mBatch.add(NotificationBatch.INSERTED, positionStart, itemCount, null);
+			adjustPositions(positionStart, itemCount);
+		} else {
+			notifying = true;
+			notifyItemRangeInserted(positionStart, itemCount);
+			notifying = false;
+		}
+	}
+
+	private void notifyRemoved(int positionStart, int itemCount) {
+		if (isInBatch()) {
+			mBatch.add(NotificationBatch.REMOVED, positionStart, itemCount, null);
+			adjustPositions(positionStart, -itemCount);
+		} else {
+			notifying = true;
+			notifyItemRangeRemoved(positionStart, itemCount);
+			notifying = false;
+		}
+	}
+
+	private void notifyChanged(int positionStart, int itemCount, @Nullable Object payload) {
+		if (isInBatch()) {
+			mBatch.add(NotificationBatch.CHANGED, positionStart, itemCount, payload);
+		} else {
+			notifyItemRangeChanged(positionStart, itemCount, payload);
+		}
+	}
+
+	private void notifyMoved(int fromPosition, int toPosition) {
+		if (isInBatch()) {
+			mBatch.add(NotificationBatch.MOVED, fromPosition, toPosition, null);
+		} else {
+			notifying = true;
+			notifyItemMoved(fromPosition, toPosition);
+			notifying = false;
+		}
+	}
+
+	/**
+	 * Selection changes are part of the batch, if open.
+	 */
+	@Override
+	protected void handleSelection(int positionStart, int itemCount) {
+		if (itemCount > 0) notifyChanged(positionStart, itemCount, null);
 	}
 
 	/*--------------------------*/
@@ -539,6 +1213,14 @@ public class FlexibleAdapter<T extends IFlexible>
 		setStickyHeaders(false, -1);
 	}
 
+	/**
+	 * @return the decoration drawing the sticky headers, with the statistics of its cache,
+	 * null if sticky headers are disabled
+	 */
+	public StickyHeaderDecoration getStickyHeaderDecoration() {
+		return stickyHeaderDecoration;
+	}
+
 	private void setStickyHeaders(boolean headersSticky, int maxCachedHeaders) {
 		//Add or Remove the sticky headers decoration
 		if (headersShown && headersSticky) {
@@ -575,17 +1257,32 @@ public class FlexibleAdapter<T extends IFlexible>
 		return null;
 	}
 
+	/**
+	 * Provides the header of the section containing the position: the previous header item or
+	 * the header of the previous item holding one.
+	 * <p>The sections are found by binary search in a table kept through the modifications
+	 * of the list.</p>
+	 *
+	 * @param position the position of an item
+	 * @return the sticky header on the position, null if headers are not shown and sticky or
+	 * if no section contains the position
+	 */
 	public IHeader getHeaderStickyOn(@IntRange(from = 0) int position) {
 		//Headers are not visible nor sticky
 		if (!headersShown || !headersSticky) return null;
 		//When headers are visible and sticky, get the previous header
-		for (int i = position; i >= 0; i--) {
-			T item = getItem(i);
-			if (isHeader(item)) return (IHeader) item;
-			IHeader header = getHeaderOf(item);
-			if (header != null) return  header;
-		}
-		return null;
+		return mSectionIndex.getHeaderOn(this, mItems, position);
+	}
+
+	/**
+	 * @param position the position of an item
+	 * @return the position of the sticky header on the position, -1 if it is not displayed
+	 * at the start of the section
+	 * @see #getHeaderStickyOn(int)
+	 */
+	int getHeaderStickyPositionOn(int position) {
+		if (!headersShown || !headersSticky) return -1;
+		return mSectionIndex.getHeaderPositionOn(this, mItems, position);
 	}
 
 	/**
@@ -612,39 +1309,91 @@ public class FlexibleAdapter<T extends IFlexible>
 	/**
 	 * Shows all headers in the RecyclerView at their linked position.
 	 * <p>Headers can be shown or hidden all together.</p>
+	 * The list is rebuilt in a single pass and the contiguous headers are notified as one range.
 	 *
 	 * @see #hideAllHeaders()
 	 */
+	@SuppressWarnings("unchecked")
 	public void showAllHeaders() {
-		multiRange = true;
+		beginBatch();
 		//Show linked headers only
-		for (int position = 0; position < mItems.size(); position++) {
-			if (showHeaderOf(position, mItems.get(position)))
-				position++;//It's the same element, skip it.
+		int size = mItems.size(), firstChanged = -1;
+		List<T> result = new ArrayList<T>(size);
+		int runStart = 0, runCount = 0;
+		for (int position = 0; position < size; position++) {
+			T item = mItems.get(position);
+			IHeader header = getHeaderOf(item);
+			if (header != null && header.isHidden() && getPendingRemovedItem(item) == null) {
+				header.setHidden(false);
+				//Insertions are notified in ascending order, at their final positions
+				if (runStart + runCount != result.size()) {
+					if (runCount > 0) notifyInserted(runStart, runCount);
+					runStart = result.size();
+					runCount = 0;
+				}
+				if (firstChanged < 0) firstChanged = result.size();
+				result.add((T) header);
+				runCount++;
+			}
+			result.add(item);
+		}
+		if (firstChanged >= 0) {
+			mItems.clear();
+			mItems.addAll(result);
+			invalidateItems(firstChanged);
+			invalidateParents();
+			notifyInserted(runStart, runCount);
+			if (DEBUG) Log.v(TAG, "Shown " + (result.size() - size) + " headers");
 		}
 		headersShown = true;
-		multiRange = false;
+		commitBatch();
 	}
 
 	/**
 	 * Hides all headers from the RecyclerView.
 	 * <p>Headers can be shown or hidden all together.</p>
+	 * The list is rebuilt in a single pass and the contiguous headers are notified as one range.
 	 *
 	 * @see #showAllHeaders()
 	 */
 	public void hideAllHeaders() {
-		multiRange = true;
-		//Hide orphan headers first
-		for (IHeader header : getOrphanHeaders()) {
-			hideHeader(getGlobalPositionOf(header), header);
+		beginBatch();
+		//Orphan headers and linked headers
+		Set<IHeader> shown = Collections.newSetFromMap(new IdentityHashMap<IHeader, Boolean>());
+		shown.addAll(getOrphanHeaders());
+		for (T item : mItems) {
+			IHeader header = getHeaderOf(item);
+			if (header != null && !header.isHidden()) shown.add(header);
 		}
-		//Hide linked headers
-		for (int position = mItems.size() - 1; position >= 0; position--) {
-			if (hideHeaderOf(mItems.get(position)))
-				position--;//It's the same element, skip it.
+		int size = mItems.size(), firstChanged = -1;
+		List<T> result = new ArrayList<T>(size);
+		int runStart = 0, runCount = 0;
+		for (int position = 0; position < size; position++) {
+			T item = mItems.get(position);
+			if (!isHeader(item) || !shown.contains(item)) {
+				result.add(item);
+				continue;
+			}
+			((IHeader) item).setHidden(true);
+			//Removals are notified in ascending order, shifted by the previous removals
+			if (runStart != result.size()) {
+				if (runCount > 0) notifyRemoved(runStart, runCount);
+				runStart = result.size();
+				runCount = 0;
+			}
+			if (firstChanged < 0) firstChanged = result.size();
+			runCount++;
+		}
+		if (firstChanged >= 0) {
+			mItems.clear();
+			mItems.addAll(result);
+			invalidateItems(firstChanged);
+			invalidateParents();
+			notifyRemoved(runStart, runCount);
+			if (DEBUG) Log.v(TAG, "Hidden " + (size - result.size()) + " headers");
 		}
 		headersShown = false;
-		multiRange = false;
+		commitBatch();
 	}
 
 	private void showAllHeadersAfterRefresh() {
@@ -704,7 +1453,8 @@ public class FlexibleAdapter<T extends IFlexible>
 			header.setHidden(true);
 			//Remove and notify removals
 			mItems.remove(position);
-			notifyItemRemoved(position);
+			invalidateItems(position);
+			notifyRemoved(position, 1);
 			return true;
 		}
 		return false;
@@ -733,7 +1483,7 @@ public class FlexibleAdapter<T extends IFlexible>
 		} else {
 			addToOrphanList(header);
 		}
-		notifyItemChanged(getGlobalPositionOf(header), payload);
+		notifyChanged(getGlobalPositionOf(header), 1, payload);
 		return linked;
 	}
 
@@ -753,7 +1503,7 @@ public class FlexibleAdapter<T extends IFlexible>
 			if (DEBUG) Log.v(TAG, "Unlink header " + header + " from " + sectionable);
 			sectionable.setHeader(null);
 			if (!header.isHidden()) {
-				notifyItemChanged(getGlobalPositionOf(header), payload);
+				notifyChanged(getGlobalPositionOf(header), 1, payload);
 			}
 			addToOrphanList(header);
 			return header;
@@ -871,49 +1621,240 @@ public class FlexibleAdapter<T extends IFlexible>
 	 */
 	@Override
 	public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List payloads) {
+		//The load more item is going to be visible: display the next page of subItems
+		if (!mPages.isEmpty()) requestNextPage(getItem(position));
 		if (!autoMap) {
 			super.onBindViewHolder(holder, position, payloads);
 			return;
 		}
-		//When user scrolls, this line binds the correct selection status
-		holder.itemView.setActivated(isSelected(position));
-		T item = getItem(position);
-		if (item != null) {
-			holder.itemView.setEnabled(item.isEnabled());
-			item.bindViewHolder(this, holder, position, payloads);
+		//When user scrolls, this line binds the correct selection status
+		holder.itemView.setActivated(isSelected(position));
+		T item = getItem(position);
+		if (item != null) {
+			holder.itemView.setEnabled(item.isEnabled());
+			item.bindViewHolder(this, holder, position, payloads);
+		}
+	}
+
+	/*--------------------*/
+	/* EXPANDABLE METHODS */
+	/*--------------------*/
+
+	//FIXME: Expanded children: find a way to Not animate items from custom ItemAnimator!!!
+	// (ItemAnimators should work in conjunction with AnimatorViewHolder???)
+	//TODO: Customize children animations (don't use animateAdd or animateRemove from custom ItemAnimator)
+	//TODO: Check if multiple types of sub items are already supported (in theory yes)
+	//TODO: Add new feature (Load More)
+
+	/**
+	 * Automatically collapse all previous expanded parents before expand the clicked parent.
+	 * <p>Default value is disabled.</p>
+	 *
+	 * @param collapseOnExpand true to collapse others items, false to just expand the current
+	 */
+	public void setAutoCollapseOnExpand(boolean collapseOnExpand) {
+		this.collapseOnExpand = collapseOnExpand;
+	}
+
+	/**
+	 * Automatically scroll the clicked expandable item to the first visible position.<br/>
+	 * Default disabled.
+	 * <p>The item is scrolled to the top of the list in combination with
+	 * {@link SmoothScrollLinearLayoutManager}. Grid and StaggeredGrid layouts are also supported.</p>
+	 *
+	 * @param scrollOnExpand true to enable automatic scroll, false to disable
+	 */
+	public void setAutoScrollOnExpand(boolean scrollOnExpand) {
+		this.scrollOnExpand = scrollOnExpand;
+	}
+
+	/**
+	 * Sets the loader of the subItems of the {@link ILazyExpandable} items.
+	 * <p>When such an item is expanded for the first time, a loading item is displayed in place
+	 * of the subItems, while the loader runs on the Executor. When the subItems arrive, the
+	 * loading item is replaced by them. Collapsing the item, while loading, cancels the load.</p>
+	 * Without Executor the subItems are loaded on the main thread, during the expansion.
+	 *
+	 * @param loader   the loader of the subItems, null to not load them
+	 * @param executor the Executor where the subItems are loaded, null to load on the main thread
+	 * @return this adapter so the call can be chained
+	 * @see #setLoadedSubItemsCacheSize(int)
+	 */
+	public FlexibleAdapter setSubItemsLoader(@Nullable SubItemsLoader<T> loader, @Nullable Executor executor) {
+		mSubItemsLoader = loader;
+		mSubItemsExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * Sets how many collapsed {@link ILazyExpandable} items keep their loaded subItems: the
+	 * subItems of the least recently collapsed items are released and loaded again at the next
+	 * expansion. The subItems of the expanded items are never released.
+	 * <p>Default value is 20.</p>
+	 *
+	 * @param cacheSize the number of collapsed items with the subItems loaded
+	 * @return this adapter so the call can be chained
+	 */
+	public FlexibleAdapter setLoadedSubItemsCacheSize(@IntRange(from = 0) int cacheSize) {
+		mLoadedCacheSize = cacheSize;
+		Iterator<ILazyExpandable> iterator = mLoadedCache.keySet().iterator();
+		while (mLoadedCache.size() > cacheSize && iterator.hasNext()) {
+			ILazyExpandable expandable = iterator.next();
+			if (!expandable.isExpanded()) expandable.setLoadedSubItems(null);
+			iterator.remove();
+		}
+		return this;
+	}
+
+	/**
+	 * Cancels all the loads of subItems in flight, removing the loading items.
+	 */
+	public void cancelSubItemsLoading() {
+		for (ILazyExpandable expandable : new ArrayList<ILazyExpandable>(mLoadTasks.keySet())) {
+			cancelLoad(expandable);
 		}
 	}
 
-	/*--------------------*/
-	/* EXPANDABLE METHODS */
-	/*--------------------*/
+	/**
+	 * @return true if the subItems of the item are being loaded, false otherwise
+	 */
+	public boolean isLoadingSubItems(@NonNull T item) {
+		return mLoadTasks.containsKey(item);
+	}
 
-	//FIXME: Expanded children: find a way to Not animate items from custom ItemAnimator!!!
-	// (ItemAnimators should work in conjunction with AnimatorViewHolder???)
-	//TODO: Customize children animations (don't use animateAdd or animateRemove from custom ItemAnimator)
-	//TODO: Check if multiple types of sub items are already supported (in theory yes)
-	//TODO: Add new feature (Load More)
+	/**
+	 * Displays the subItems of the expanded items by pages: an expansion displays only the
+	 * first page of subItems followed by a load more item, created by the pager. When the load
+	 * more item is bound, the next page is displayed before it, until all the subItems are
+	 * displayed.
+	 * <p>The relative position of the subItems and the Undo of the removed subItems are not
+	 * affected: a restored subItem that is not displayed yet, is displayed with its page.</p>
+	 * Default value is 0 (all the subItems are displayed at once).
+	 *
+	 * @param pageSize the number of subItems for each page, 0 to disable the pages
+	 * @param pager    the creator of the load more items, null to disable the pages
+	 * @return this adapter so the call can be chained
+	 * @see #loadMoreSubItems(IExpandable)
+	 * @see #trimSubItemsPages(int)
+	 */
+	public FlexibleAdapter setSubItemsPageSize(@IntRange(from = 0) int pageSize, @Nullable SubItemsPager<T> pager) {
+		mSubItemsPageSize = pageSize;
+		mSubItemsPager = pager;
+		return this;
+	}
 
 	/**
-	 * Automatically collapse all previous expanded parents before expand the clicked parent.
-	 * <p>Default value is disabled.</p>
+	 * Displays the next page of subItems of an expanded item, in place of its load more item.
+	 * <p>Automatically called when the load more item is bound.</p>
 	 *
-	 * @param collapseOnExpand true to collapse others items, false to just expand the current
+	 * @param expandable the expanded item
+	 * @return the number of subItems displayed
+	 * @see #setSubItemsPageSize(int, SubItemsPager)
 	 */
-	public void setAutoCollapseOnExpand(boolean collapseOnExpand) {
-		this.collapseOnExpand = collapseOnExpand;
+	@SuppressWarnings("unchecked")
+	public int loadMoreSubItems(@NonNull IExpandable expandable) {
+		SubItemsPage page = mPages.get(expandable);
+		if (page == null) return 0;
+		page.loading = false;
+		mLastFilter = null;
+		int position = getGlobalPositionOf(page.loadMoreItem);
+		if (position < 0) return 0;
+
+		List<T> subItems = new ArrayList<T>();
+		int next = collectSubItems(expandable, page.getNextIndex(), mSubItemsPageSize, subItems);
+		page.setLastChild(subItems.isEmpty() ? page.lastChild : subItems.get(subItems.size() - 1), next);
+		boolean last = next < 0;
+		if (last) {
+			//All the subItems are displayed: the load more item is replaced
+			mItems.remove(position);
+			invalidateItems(position);
+			notifyRemoved(position, 1);
+			if (parentsValid) mParents.remove(page.loadMoreItem);
+		}
+		mItems.addAll(position, subItems);
+		invalidateItems(position);
+		if (parentsValid) {
+			for (T subItem : subItems) {
+				if (!mParents.containsKey(subItem)) mParents.put(subItem, expandable);
+			}
+		}
+		notifyInserted(position, subItems.size());
+		//Show also the headers of the subItems
+		if (headersShown) {
+			int count = 0;
+			for (T subItem : subItems) {
+				if (showHeaderOf(position + (count++), subItem)) count++;
+			}
+		}
+		if (DEBUG) Log.v(TAG, "Loaded " + subItems.size() + " more subItems on position=" + position + " last=" + last);
+		return subItems.size();
 	}
 
 	/**
-	 * Automatically scroll the clicked expandable item to the first visible position.<br/>
-	 * Default disabled.
-	 * <p>This works ONLY in combination with {@link SmoothScrollLinearLayoutManager}.
-	 * GridLayout is still NOT supported.</p>
+	 * Removes the pages of subItems displayed after the visible ones, keeping a page of margin:
+	 * the load more item is displayed again in their place. Call this method when the memory
+	 * is low, the removed pages are displayed again with the scroll.
+	 * <p>Pages containing selected items are not removed.</p>
 	 *
-	 * @param scrollOnExpand true to enable automatic scroll, false to disable
+	 * @param lastVisiblePosition the position of the last visible item
+	 * @return the number of items removed
+	 * @see #setSubItemsPageSize(int, SubItemsPager)
 	 */
-	public void setAutoScrollOnExpand(boolean scrollOnExpand) {
-		this.scrollOnExpand = scrollOnExpand;
+	@SuppressWarnings("unchecked")
+	public int trimSubItemsPages(@IntRange(from = 0) int lastVisiblePosition) {
+		int trimmed = 0;
+		for (SubItemsPage page : new ArrayList<SubItemsPage>(mPages.values())) {
+			//Pages of the sub expandable could be trimmed with the parent
+			if (mPages.get(page.expandable) != page) continue;
+			int position = getGlobalPositionOf((T) page.expandable);
+			if (position < 0) continue;
+			int end = getSubtreeEnd(position, page.expandable);
+			boolean loadMoreShown = mItems.get(end - 1) == page.loadMoreItem;
+			if (loadMoreShown) end--;
+
+			//Cut before the first child after the margin, keeping at least a page
+			int keepEnd = Math.max(position, lastVisiblePosition) + mSubItemsPageSize;
+			int cut = -1, children = 0;
+			T lastChild = null;
+			for (int i = position + 1; i < end; i++) {
+				if (getExpandableOf(mItems.get(i)) != page.expandable) continue;
+				if (children >= mSubItemsPageSize && i > keepEnd) {
+					cut = i;
+					break;
+				}
+				lastChild = mItems.get(i);
+				children++;
+			}
+			if (cut < 0) continue;
+			//The header of the child is displayed just before it
+			if (isHeader(mItems.get(cut - 1))) cut--;
+			boolean selected = false;
+			for (Integer selectedPosition : getSelectedPositions()) {
+				if (selectedPosition >= cut && selectedPosition < end) selected = true;
+			}
+			if (selected) continue;
+
+			List<T> subItems = new ArrayList<T>(mItems.subList(cut, end));
+			mItems.subList(cut, end).clear();
+			//Save expanded state of the sub expandable
+			for (T subItem : subItems) {
+				if (isExpanded(subItem)) {
+					((IExpandable) subItem).setExpanded(false);
+					mPages.remove(subItem);
+				}
+				if (isHeader(subItem)) subItem.setHidden(true);
+				if (parentsValid) mParents.remove(subItem);
+			}
+			if (!loadMoreShown) mItems.add(cut, page.loadMoreItem);
+			page.setLastChild(lastChild, indexOfSubItem(page.expandable, lastChild) + 1);
+			invalidateItems(cut);
+			if (parentsValid) mParents.put(page.loadMoreItem, page.expandable);
+			notifyRemoved(cut, subItems.size());
+			if (!loadMoreShown) notifyInserted(cut, 1);
+			trimmed += subItems.size();
+			if (DEBUG) Log.v(TAG, "Trimmed " + subItems.size() + " subItems on position=" + cut);
+		}
+		return trimmed;
 	}
 
 	public boolean isExpanded(@IntRange(from = 0) int position) {
@@ -939,7 +1880,8 @@ public class FlexibleAdapter<T extends IFlexible>
 
 	/**
 	 * Retrieves the parent of a child.
-	 * <p>Only for a real child of an expanded parent.</p>
+	 * <p>Only for a real child of an expanded parent. The child is matched by {@code equals()}
+	 * and {@code hashCode()}, the first expanded parent in the list wins.</p>
 	 *
 	 * @param child the child item
 	 * @return the parent of this child item or null if not found
@@ -947,20 +1889,42 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * @see #getRelativePositionOf(IFlexible)
 	 */
 	public IExpandable getExpandableOf(@NonNull T child) {
-		for (T parent : mItems) {
-			if (isExpandable(parent)) {
-				IExpandable expandable = (IExpandable) parent;
-				if (expandable.isExpanded() && hasSubItems(expandable)) {
-					List<T> list = expandable.getSubItems();
-					for (T subItem : list) {
-						//Pick up only no-hidden items
-						if (!subItem.isHidden() && subItem.equals(child))
-							return expandable;
-					}
+		if (!parentsValid) buildParents();
+		IExpandable parent = mParents.get(child);
+		//Flags could have been changed by the user in the meantime
+		if (parent != null && parent.isExpanded() && !child.isHidden()) return parent;
+		return null;
+	}
+
+	/**
+	 * Maps in a single pass each not-hidden child of the expanded items to its direct parent.
+	 * The first parent wins, as for a scan of the list.
+	 */
+	private void buildParents() {
+		mParents.clear();
+		for (T item : mItems) {
+			if (isExpanded(item) && hasSubItems((IExpandable) item)) {
+				IExpandable expandable = (IExpandable) item;
+				List<T> subItems = expandable.getSubItems();
+				for (T subItem : subItems) {
+					if (!subItem.isHidden() && !mParents.containsKey(subItem))
+						mParents.put(subItem, expandable);
 				}
 			}
 		}
-		return null;
+		//The load more item is displayed as the last child
+		for (SubItemsPage page : mPages.values()) {
+			if (page.expandable.isExpanded()) mParents.put(page.loadMoreItem, page.expandable);
+		}
+		//The loading item is displayed in place of the subItems
+		for (LoadTask task : mLoadTasks.values()) {
+			if (task.loadingItem != null) mParents.put(task.loadingItem, task.expandable);
+		}
+		parentsValid = true;
+	}
+
+	private void invalidateParents() {
+		parentsValid = false;
 	}
 
 	/**
@@ -980,7 +1944,7 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * Provides the list where the child currently lays.
 	 *
 	 * @param child the child item
-	 * @return the list of the child element, or a new list if item
+	 * @return the read only list of the child element, or an empty list if item has no parent
 	 * @see #getExpandableOf(IFlexible)
 	 * @see #getExpandablePositionOf(IFlexible)
 	 * @see #getRelativePositionOf(IFlexible)
@@ -1055,6 +2019,10 @@ public class FlexibleAdapter<T extends IFlexible>
 		if (DEBUG) Log.v(TAG, "Request to Expand on position " + position +
 				" expanded " + expandable.isExpanded() + " ExpandedItems=" + getExpandedPositions());
 
+		//SubItems not loaded yet are displayed later
+		if (expandable instanceof ILazyExpandable && !expandable.isExpanded() && !parentSelected &&
+				!loadSubItems(position, (ILazyExpandable) expandable)) return 0;
+
 		int subItemsCount = 0;
 		if (!expandable.isExpanded() && !parentSelected && hasSubItems(expandable)) {
 
@@ -1068,8 +2036,17 @@ public class FlexibleAdapter<T extends IFlexible>
 			//Every time an expansion is requested, subItems must be taken from the original Object!
 			//without the subItems that are going to be removed
 			//Save a copy child items list
-			List<T> subItems = getExpandableList(expandable);
+			List<T> subItems = new ArrayList<T>();
+			//With pages, the load more item follows the first page
+			T loadMoreItem = collectFirstPage(expandable, subItems);
+			if (loadMoreItem != null) subItems.add(loadMoreItem);
 			mItems.addAll(position + 1, subItems);
+			invalidateItems(position + 1);
+			if (parentsValid) {
+				for (T subItem : subItems) {
+					if (!mParents.containsKey(subItem)) mParents.put(subItem, expandable);
+				}
+			}
 			subItemsCount = subItems.size();
 			//Save expanded state
 			expandable.setExpanded(true);
@@ -1077,21 +2054,15 @@ public class FlexibleAdapter<T extends IFlexible>
 			//mapViewTypesFrom(subItems);
 
 			//Automatically scroll the current expandable item to show as much children as possible
-			if (scrollOnExpand && !expandAll) {
-				//Must be delayed to give time at RecyclerView to recalculate positions
-				//after an automatic collapse
-				final int pos = position, count = subItemsCount;
-				Handler animatorHandler = new Handler(Looper.getMainLooper(), new Handler.Callback() {
-					public boolean handleMessage(Message message) {
-						autoScroll(pos, count);
-						return true;
-					}
-				});
-				animatorHandler.sendMessageDelayed(Message.obtain(mHandler), 150L);
+			if (scrollOnExpand && !expandAll && mScrollCoordinator != null) {
+				//Performed when RecyclerView has laid out the new positions, also after
+				//an automatic collapse
+				if (DEBUG) Log.v(TAG, "Request autoScroll on position=" + position + " subItemsCount=" + subItemsCount);
+				mScrollCoordinator.requestScrollToShow(position, subItemsCount);
 			}
 
 			//Expand!
-			notifyItemRangeInserted(position + 1, subItemsCount);
+			notifyInserted(position + 1, subItemsCount);
 			//Show also the headers of the subItems
 			if (headersShown) {
 				int count = 0;
@@ -1107,14 +2078,87 @@ public class FlexibleAdapter<T extends IFlexible>
 	}
 
 	/**
+	 * Expands all the Expandable items, at every level, rebuilding the list in a single pass.
+	 * <p>The headers of the new subItems are shown in the same pass, if headers are shown, and
+	 * each range of new items is notified once.</p>
+	 * The {@link ILazyExpandable} items whose subItems are not loaded are expanded afterwards,
+	 * as with {@link #expand(int)}: their subItems are displayed when loaded and they are not
+	 * counted.
+	 *
 	 * @return the number of parent successfully expanded
 	 */
 	public int expandAll() {
+		if (parentSelected) return 0;
 		int expanded = 0;
-		//More efficient if we expand from First expandable position
-		for (int i = 0; i < mItems.size(); i++) {
-			if (expand(i, true) > 0) expanded++;
+		List<T> result = new ArrayList<T>(mItems.size());
+		List<T> lazyItems = new ArrayList<T>();
+		for (T item : mItems) {
+			expanded += appendExpanded(item, result, lazyItems);
+		}
+		if (expanded == 0) {
+			expandLazyItems(lazyItems);
+			return 0;
+		}
+
+		//Old items keep their relative order: the others are the inserted ranges
+		int[] ranges = new int[16];
+		int rangeCount = 0, oldPosition = 0, oldSize = mItems.size(), size = result.size();
+		for (int position = 0; position < size; position++) {
+			if (oldPosition < oldSize && result.get(position) == mItems.get(oldPosition)) {
+				oldPosition++;
+			} else if (rangeCount > 0 && ranges[rangeCount - 2] + ranges[rangeCount - 1] == position) {
+				ranges[rangeCount - 1]++;
+			} else {
+				if (rangeCount == ranges.length) ranges = Arrays.copyOf(ranges, rangeCount << 1);
+				ranges[rangeCount++] = position;
+				ranges[rangeCount++] = 1;
+			}
+		}
+		mItems.clear();
+		mItems.addAll(result);
+		invalidateItems(ranges[0]);
+		invalidateParents();
+
+		//Notify insertions from the first range, so the positions remain valid
+		for (int i = 0; i < rangeCount; i += 2) {
+			notifyInserted(ranges[i], ranges[i + 1]);
+		}
+		if (DEBUG) Log.v(TAG, "Expanded all " + expanded + " parents, itemCount=" + size);
+		expandLazyItems(lazyItems);
+		return expanded;
+	}
+
+	/**
+	 * Appends the item and, if it can be expanded, its subItems with their headers, expanding
+	 * them recursively. The items whose subItems must be loaded are collected in lazyItems.
+	 *
+	 * @return the number of items expanded
+	 */
+	private int appendExpanded(T item, List<T> result, List<T> lazyItems) {
+		result.add(item);
+		if (!item.isEnabled() || !isExpandable(item)) return 0;
+		IExpandable expandable = (IExpandable) item;
+		if (expandable.isExpanded()) return 0;
+		if (expandable instanceof ILazyExpandable && !((ILazyExpandable) expandable).isSubItemsLoaded()) {
+			lazyItems.add(item);
+			return 0;
+		}
+		if (!hasSubItems(expandable)) return 0;
+		//Save expanded state
+		expandable.setExpanded(true);
+		int expanded = 1;
+		List<T> subItems = new ArrayList<T>();
+		T loadMoreItem = collectFirstPage(expandable, subItems);
+		for (T subItem : subItems) {
+			//Show also the headers of the subItems
+			IHeader header = getHeaderOf(subItem);
+			if (headersShown && header != null && header.isHidden() && getPendingRemovedItem(subItem) == null) {
+				header.setHidden(false);
+				result.add((T) header);
+			}
+			expanded += appendExpanded(subItem, result, lazyItems);
 		}
+		if (loadMoreItem != null) result.add(loadMoreItem);
 		return expanded;
 	}
 
@@ -1134,21 +2178,39 @@ public class FlexibleAdapter<T extends IFlexible>
 		if (DEBUG)
 			Log.v(TAG, "Request to Collapse on position " + position + " ExpandedItems=" + getExpandedPositions());
 
-		int subItemsCount = 0, recursiveCount = 0;
+		//Collapsing while loading cancels the load
+		if (mLoadTasks.containsKey(item)) {
+			cancelLoad((ILazyExpandable) item);
+			return 0;
+		}
+
+		int subItemsCount = 0;
 		if (expandable.isExpanded() &&
 				(!hasSubItemsSelected(expandable) || getPendingRemovedItem(item) != null)) {
 
-			//Take the current subList
-			List<T> subItems = getExpandableList(expandable);
-			//Recursive collapse of all sub expandable
-			recursiveCount = recursiveCollapse(subItems);
-			mItems.removeAll(subItems);
+			//Take the whole visible subtree, sub expandable included, and remove it at once
+			int positionEnd = getSubtreeEnd(position, expandable);
+			List<T> subItems = new ArrayList<T>(mItems.subList(position + 1, positionEnd));
+			mItems.subList(position + 1, positionEnd).clear();
+			invalidateItems(position + 1);
 			subItemsCount = subItems.size();
-			//Save expanded state
+			//Save expanded state, also of all sub expandable
 			expandable.setExpanded(false);
+			cacheLoaded(expandable);
+			mPages.remove(expandable);
+			for (T subItem : subItems) {
+				if (isExpanded(subItem)) {
+					((IExpandable) subItem).setExpanded(false);
+					collapseLoad(subItem);
+					mPages.remove(subItem);
+				}
+				//Headers of the subItems displayed in the subtree
+				if (isHeader(subItem)) subItem.setHidden(true);
+				if (parentsValid) mParents.remove(subItem);
+			}
 
 			//Collapse!
-			notifyItemRangeRemoved(position + 1, subItemsCount);
+			notifyRemoved(position + 1, subItemsCount);
 			//Hide also the headers of the subItems
 			if (headersShown) {
 				for (T subItem : subItems) {
@@ -1159,33 +2221,274 @@ public class FlexibleAdapter<T extends IFlexible>
 			if (DEBUG)
 				Log.v(TAG, "Collapsed " + subItemsCount + " subItems on position=" + position + " ExpandedItems=" + getExpandedPositions());
 		}
-		return subItemsCount + recursiveCount;
+		return subItemsCount;
 	}
 
-	@SuppressWarnings("Range")
-	private int recursiveCollapse(List<T> subItems) {
-		int collapsed = 0;
-		for (T subItem : subItems) {
-			if (isExpanded(subItem)) {
-				if (DEBUG) Log.v(TAG, "Recursive collapsing on expandable subItem " + subItem);
-				collapsed += collapse(getGlobalPositionOf(subItem));
-			}
+	/**
+	 * Finds the end of the visible subtree of an expanded item, walking up the parents of the
+	 * following items: with multi level expansion, the subtree contains also the subItems of
+	 * the expanded subItems, and the headers displayed before them.
+	 *
+	 * @param position   the position of the expanded item
+	 * @param expandable the expanded item
+	 * @return the position after the last displayed descendant
+	 */
+	private int getSubtreeEnd(int position, IExpandable expandable) {
+		int positionEnd = position + 1, size = mItems.size();
+		while (positionEnd < size) {
+			//The header of a subItem is displayed just before it
+			int childPosition = isHeader(mItems.get(positionEnd)) ? positionEnd + 1 : positionEnd;
+			if (childPosition >= size || !isDescendantOf(mItems.get(childPosition), expandable))
+				break;
+			positionEnd = childPosition + 1;
 		}
-		return collapsed;
+		return positionEnd;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean isDescendantOf(T item, IExpandable expandable) {
+		IExpandable parent = getExpandableOf(item);
+		while (parent != null && parent != expandable) {
+			parent = getExpandableOf((T) parent);
+		}
+		return parent != null;
 	}
 
 	/**
+	 * Collapses all the Expandable items, at every level, compacting the list in a single pass.
+	 * <p>As for {@link #collapse(int)}, a parent with selected subItems is not collapsed.
+	 * The headers of the removed subItems are hidden in the same pass and each range of
+	 * removed items is notified once.</p>
+	 * <b>NOTE:</b> Each expanded item is counted, at every level, also when it displays no
+	 * subItems or when its load is cancelled: collapsing the items one by one counted only
+	 * those that removed at least one subItem.
+	 *
 	 * @return the number of parent successfully collapsed
 	 */
 	public int collapseAll() {
-		int collapsed = 0;
-		//More efficient if we collapse from Last expanded position
-		for (int i = mItems.size() - 1; i >= 0; i--) {
-			if (collapse(i) > 0) collapsed++;
+		int collapsed = 0, size = mItems.size();
+		boolean[] removed = new boolean[size];
+		//Headers are displayed before their items: positions of the headers already walked
+		Map<IHeader, Integer> headerPositions = new IdentityHashMap<IHeader, Integer>();
+		for (int position = 0; position < size; position++) {
+			T item = mItems.get(position);
+			if (isHeader(item)) headerPositions.put((IHeader) item, position);
+			if (!item.isEnabled() || !isExpanded(item)) continue;
+			IExpandable expandable = (IExpandable) item;
+			if (hasSubItemsSelected(expandable) && getPendingRemovedItem(item) == null) continue;
+			int positionEnd = getSubtreeEnd(position, expandable);
+			//Save expanded state, also of all sub expandable
+			expandable.setExpanded(false);
+			mPages.remove(expandable);
+			collapsed++;
+			//The loading items belong to the subtree
+			collapseLoad(item);
+			for (int i = position + 1; i < positionEnd; i++) {
+				T subItem = mItems.get(i);
+				removed[i] = true;
+				if (isExpanded(subItem)) {
+					((IExpandable) subItem).setExpanded(false);
+					collapseLoad(subItem);
+					mPages.remove(subItem);
+					collapsed++;
+				}
+				//Hide also the headers of the subItems
+				if (isHeader(subItem)) {
+					subItem.setHidden(true);
+					headerPositions.put((IHeader) subItem, i);
+				} else if (headersShown) {
+					IHeader header = getHeaderOf(subItem);
+					if (header != null && !header.isHidden()) {
+						Integer headerPosition = headerPositions.get(header);
+						if (headerPosition != null) removed[headerPosition] = true;
+						header.setHidden(true);
+					}
+				}
+			}
+			position = positionEnd - 1;
+		}
+		if (collapsed == 0) return 0;
+
+		//Compact the list in a single pass, collecting the removed ranges
+		int[] ranges = new int[16];
+		int rangeCount = 0, write = 0;
+		for (int read = 0; read < size; read++) {
+			if (!removed[read]) {
+				if (write != read) mItems.set(write, mItems.get(read));
+				write++;
+			} else if (rangeCount > 0 && ranges[rangeCount - 2] + ranges[rangeCount - 1] == read) {
+				ranges[rangeCount - 1]++;
+			} else {
+				if (rangeCount == ranges.length) ranges = Arrays.copyOf(ranges, rangeCount << 1);
+				ranges[rangeCount++] = read;
+				ranges[rangeCount++] = 1;
+			}
 		}
+		if (rangeCount == 0) return collapsed;
+		mItems.subList(write, size).clear();
+		invalidateItems(ranges[0]);
+		invalidateParents();
+
+		//Notify removals from the last range, so the positions remain valid
+		for (int i = rangeCount - 2; i >= 0; i -= 2) {
+			notifyRemoved(ranges[i], ranges[i + 1]);
+		}
+		if (DEBUG) Log.v(TAG, "Collapsed all " + collapsed + " parents, itemCount=" + write);
 		return collapsed;
 	}
 
+	/**
+	 * Starts the load of the subItems of a lazy item, if they are not loaded yet.
+	 *
+	 * @return true if the subItems are loaded and the item can be expanded now, false if
+	 * the subItems will be displayed when loaded
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean loadSubItems(int position, ILazyExpandable expandable) {
+		if (expandable.isSubItemsLoaded() || mSubItemsLoader == null) {
+			//The subItems of an expanded item are never released
+			mLoadedCache.remove(expandable);
+			return true;
+		}
+		LoadTask task = new LoadTask(expandable);
+		if (mSubItemsExecutor == null) {
+			List<T> subItems = task.load();
+			if (subItems == null) return false;
+			expandable.setLoadedSubItems(subItems);
+			return true;
+		}
+		//The loading item is displayed in place of the subItems
+		expandable.setExpanded(true);
+		task.loadingItem = mSubItemsLoader.onCreateLoadingItem(expandable);
+		if (task.loadingItem != null) {
+			mItems.add(position + 1, task.loadingItem);
+			invalidateItems(position + 1);
+			if (parentsValid) mParents.put(task.loadingItem, expandable);
+			notifyInserted(position + 1, 1);
+		}
+		mLoadTasks.put(expandable, task);
+		mSubItemsExecutor.execute(task);
+		if (DEBUG) Log.v(TAG, "Loading subItems on position=" + position);
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void onSubItemsLoaded(LoadTask task) {
+		mLoadTasks.remove(task.expandable);
+		removeLoadingItem(task);
+		task.expandable.setExpanded(false);
+		if (task.subItems == null) return;
+		task.expandable.setLoadedSubItems(task.subItems);
+		mLastFilter = null;
+		if (mSearchIndex != null) mSearchIndex.addAll(task.subItems);
+		int position = getGlobalPositionOf((T) task.expandable);
+		if (position >= 0) expand(position);
+		else cacheLoaded(task.expandable);
+	}
+
+	private void cancelLoad(ILazyExpandable expandable) {
+		LoadTask task = mLoadTasks.remove(expandable);
+		task.cancelled = true;
+		expandable.setExpanded(false);
+		removeLoadingItem(task);
+		if (DEBUG) Log.v(TAG, "Cancelled loading of subItems");
+	}
+
+	private void removeLoadingItem(LoadTask task) {
+		int position = task.loadingItem != null ? getGlobalPositionOf(task.loadingItem) : -1;
+		if (position < 0) return;
+		mItems.remove(position);
+		invalidateItems(position);
+		if (parentsValid) mParents.remove(task.loadingItem);
+		notifyRemoved(position, 1);
+	}
+
+	/**
+	 * Cancels the load in flight of a collapsed item, whose loading item is removed with its
+	 * subtree, otherwise keeps its loaded subItems in the cache.
+	 */
+	private void collapseLoad(T item) {
+		LoadTask task = mLoadTasks.remove(item);
+		if (task != null) task.cancelled = true;
+		else cacheLoaded((IExpandable) item);
+	}
+
+	/**
+	 * Keeps the loaded subItems of a collapsed lazy item in the cache.
+	 */
+	private void cacheLoaded(IExpandable expandable) {
+		if (expandable instanceof ILazyExpandable && ((ILazyExpandable) expandable).isSubItemsLoaded())
+			mLoadedCache.put((ILazyExpandable) expandable, Boolean.TRUE);
+	}
+
+	/**
+	 * Collects the subItems to display on expansion: with pages enabled, only the first page
+	 * is collected and the load more item is created.
+	 *
+	 * @return the load more item to display after the subItems, null if all the subItems are
+	 * collected
+	 */
+	private T collectFirstPage(IExpandable expandable, List<T> subItems) {
+		if (mSubItemsPageSize <= 0 || mSubItemsPager == null) {
+			collectSubItems(expandable, 0, Integer.MAX_VALUE, subItems);
+			return null;
+		}
+		int next = collectSubItems(expandable, 0, mSubItemsPageSize, subItems);
+		if (next < 0) return null;
+		T loadMoreItem = mSubItemsPager.onCreateLoadMoreItem(expandable);
+		if (loadMoreItem == null) {
+			collectSubItems(expandable, next, Integer.MAX_VALUE, subItems);
+			return null;
+		}
+		SubItemsPage page = new SubItemsPage(expandable, loadMoreItem);
+		page.setLastChild(subItems.get(subItems.size() - 1), next);
+		mPages.put(expandable, page);
+		return loadMoreItem;
+	}
+
+	/**
+	 * Collects at most {@code count} not hidden subItems, starting from the index {@code start}.
+	 *
+	 * @return the index of the next not hidden subItem, -1 if there are no more subItems
+	 */
+	private int collectSubItems(IExpandable expandable, int start, int count, List<T> subItems) {
+		if (!hasSubItems(expandable)) return -1;
+		List<T> allSubItems = expandable.getSubItems();
+		int collected = 0;
+		for (int i = start; i < allSubItems.size(); i++) {
+			T subItem = allSubItems.get(i);
+			//Pick up only no hidden items
+			if (subItem.isHidden()) continue;
+			if (collected == count) return i;
+			subItems.add(subItem);
+			collected++;
+		}
+		return -1;
+	}
+
+	private int indexOfSubItem(IExpandable expandable, T subItem) {
+		List<T> subItems = expandable.getSubItems();
+		for (int i = 0; i < subItems.size(); i++) {
+			if (subItems.get(i) == subItem) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Posts the load of the next page, if the item is the load more item of its parent.
+	 * <p>Called while binding: only the few pages are scanned.</p>
+	 */
+	private void requestNextPage(T item) {
+		for (SubItemsPage page : mPages.values()) {
+			if (page.loadMoreItem != item) continue;
+			if (page.loading || !page.expandable.isExpanded()) return;
+			//The list cannot be modified while the RecyclerView is binding
+			page.loading = true;
+			mHandler.sendMessage(Message.obtain(mHandler, 4, page));
+			return;
+		}
+	}
+
 	/*----------------*/
 	/* UPDATE METHODS */
 	/*----------------*/
@@ -1196,9 +2499,17 @@ public class FlexibleAdapter<T extends IFlexible>
 			Log.e(TAG, "Cannot updateItem on position out of OutOfBounds!");
 			return;
 		}
-		mItems.set(position, item);
+		T oldItem = mItems.set(position, item);
+		invalidateItems(position);
+		invalidateParents();
+		//The new item could have another parent
+		if (isSelected(position)) selectedChildrenValid = false;
+		if (oldItem != item) forgetItems(Collections.singletonList(oldItem));
+		updateSearchIndex(item);
+		//The filter cannot be refined on the old content
+		mLastFilter = null;
 		if (DEBUG) Log.v(TAG, "updateItem notifyItemChanged on position " + position);
-		notifyItemChanged(position, payload);
+		notifyChanged(position, 1, payload);
 	}
 
 	/*----------------*/
@@ -1280,13 +2591,17 @@ public class FlexibleAdapter<T extends IFlexible>
 		} else {
 			mItems.addAll(items);
 		}
+		invalidateItems(position);
+		//New items could be expanded parents or children already added to their parent
+		invalidateParents();
+		if (mSearchIndex != null) mSearchIndex.addAll(items);
 		//Map all the view types if not done yet
 		//mapViewTypesFrom(items);
 		//Notify range addition
-		notifyItemRangeInserted(position, items.size());
+		notifyInserted(position, items.size());
 
 		//Call listener to update EmptyView
-		if (mUpdateListener != null && !multiRange)
+		if (mUpdateListener != null && !isInBatch())
 			mUpdateListener.onUpdateEmptyView(getItemCount());
 		return true;
 	}
@@ -1412,6 +2727,7 @@ public class FlexibleAdapter<T extends IFlexible>
 								@NonNull IExpandable parent,
 								@NonNull List<T> items, boolean expandParent, @Nullable Object payload) {
 		boolean added = false;
+		mLastFilter = null;
 		//Expand parent if requested and not already expanded
 		if (expandParent && !parent.isExpanded()) {
 			expand(parentPosition);
@@ -1419,13 +2735,33 @@ public class FlexibleAdapter<T extends IFlexible>
 		//Notify the adapter of the new addition to display it and animate it.
 		//If parent is collapsed there's no need to notify about the change.
 		if (parent.isExpanded()) {
-			added = addItems(parentPosition + 1 + Math.max(0, subPosition), items);
+			int position = getSubItemPosition(parentPosition, parent, Math.max(0, subPosition));
+			if (position >= 0) added = addItems(position, items);
 		}
 		//Notify the parent about the change if requested
-		if (payload != null) notifyItemChanged(parentPosition, payload);
+		if (payload != null) notifyChanged(parentPosition, 1, payload);
 		return added;
 	}
 
+	/**
+	 * Finds the global position of a subItem from its position among the displayed subItems,
+	 * skipping the subItems of the expanded subItems.
+	 *
+	 * @return the global position, -1 if the subItem is after the displayed pages of subItems
+	 */
+	private int getSubItemPosition(int parentPosition, IExpandable parent, int subPosition) {
+		int end = getSubtreeEnd(parentPosition, parent), count = 0;
+		SubItemsPage page = mPages.get(parent);
+		boolean loadMoreShown = page != null && mItems.get(end - 1) == page.loadMoreItem;
+		if (loadMoreShown) end--;
+		for (int position = parentPosition + 1; position < end; position++) {
+			if (getExpandableOf(mItems.get(position)) != parent) continue;
+			if (count++ == subPosition) return position;
+		}
+		//SubItems after the displayed pages are displayed with the next page
+		return loadMoreShown && count < subPosition ? -1 : end;
+	}
+
 	/*----------------------*/
 	/* DELETE ITEMS METHODS */
 	/*----------------------*/
@@ -1488,41 +2824,23 @@ public class FlexibleAdapter<T extends IFlexible>
 			Log.v(TAG, "removeItems selectedPositions=" + selectedPositions + " payload=" + payload);
 		//Check if list is empty
 		if (selectedPositions == null || selectedPositions.isEmpty()) return;
-		//Reverse-sort the list, start from last position for efficiency
-		Collections.sort(selectedPositions, new Comparator<Integer>() {
-			@Override
-			public int compare(Integer lhs, Integer rhs) {
-				return rhs - lhs;
-			}
-		});
-		if (DEBUG)
-			Log.v(TAG, "removeItems after reverse sort selectedPositions=" + selectedPositions);
-		//Split the list in ranges
-		int positionStart = 0, itemCount = 0;
-		int lastPosition = selectedPositions.get(0);
-		multiRange = true;
-		for (Integer position : selectedPositions) {//10 9 8 //5 4 //1
-			if (lastPosition - itemCount == position) {//10-0==10  10-1==9  10-2==8  10-3==5 NO  //5-1=4  5-2==1 NO
-				itemCount++;             // 1  2  3  //2
-				positionStart = position;//10  9  8  //4
-			} else {
-				adjustSelected = false;
-				//Remove range
-				if (itemCount > 0)
-					removeRange(positionStart, itemCount, payload);//8,3  //4,2
-				positionStart = lastPosition = position;//5  //1
-				itemCount = 1;
-			}
-			//Request to collapse after the notification of remove range
-			collapse(position);
-		}
-		multiRange = false;
-		//Clear also the selection
-		clearSelection();
-		//Remove last range
-		if (itemCount > 0) {
-			removeRange(positionStart, itemCount, payload);//1,1
+		//Sort without boxing, skip duplicates and invalid positions
+		int[] positions = new int[selectedPositions.size()];
+		int count = 0;
+		for (Integer position : selectedPositions) {
+			if (position != null && position >= 0 && position < mItems.size())
+				positions[count++] = position;
+		}
+		Arrays.sort(positions, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || positions[distinct - 1] != positions[i])
+				positions[distinct++] = positions[i];
 		}
+		if (distinct == 0) return;
+		beginBatch();
+		removePositions(Arrays.copyOf(positions, distinct), payload, true);
+		commitBatch();
 	}
 
 	/**
@@ -1568,15 +2886,168 @@ public class FlexibleAdapter<T extends IFlexible>
 			Log.e(TAG, "Cannot removeRange with positionStart out of OutOfBounds!");
 			return;
 		}
+		if (itemCount == 0) return;
+
+		int[] positions = new int[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			positions[i] = positionStart + i;
+		}
+		removePositions(positions, payload, false);
 
+		//Update empty view
+		if (mUpdateListener != null && !isInBatch() && initialCount != getItemCount())
+			mUpdateListener.onUpdateEmptyView(getItemCount());
+	}
+
+	/* Kinds of the positions marked by the removal engine */
+	private static final byte KEEP = 0, REMOVE = 1, COLLAPSE = 2, ORPHAN = 3;
+
+	/**
+	 * Bulk removal engine used by {@link #removeItems(List, Object)} and
+	 * {@link #removeRange(int, int, Object)}.
+	 * <p>The removals are first marked, runs of consecutive positions are then processed
+	 * from the last, as if they were removed one by one (restore infos, header linkage and
+	 * orphan headers), finally the list is compacted in a single pass and the removed ranges
+	 * are notified.</p>
+	 *
+	 * @param positions      the positions to remove, sorted ascending without duplicates
+	 * @param payload        the payload for the parents and the headers
+	 * @param clearSelection true to clear the selection before the removal is notified
+	 */
+	@SuppressWarnings("unchecked")
+	private void removePositions(int[] positions, @Nullable Object payload, boolean clearSelection) {
+		//Collect the items, the value tells if the item is removed or just collapsed
+		Map<T, Boolean> removals = new IdentityHashMap<T, Boolean>(positions.length);
+		for (int position : positions) {
+			removals.put(mItems.get(position), Boolean.TRUE);
+		}
+		//Collapse the expanded items from the last: only next positions are affected
+		List<IExpandable> collapsing = new ArrayList<IExpandable>();
+		for (int i = positions.length - 1; i >= 0; i--) {
+			T item = getItem(positions[i]);
+			if (!isExpanded(item)) continue;
+			IExpandable expandable = (IExpandable) item;
+			List<T> subItems = getExpandableList(expandable);
+			boolean subItemsRemoved = false;
+			int subItemsSelected = getSelectedSubItemsCount(expandable);
+			for (T subItem : subItems) {
+				if (removals.containsKey(subItem)) {
+					subItemsRemoved = true;
+					//Only the selected children that remain prevent the collapse
+					if (subItemsSelected > 0 && isSelected(getGlobalPositionOf(subItem))) subItemsSelected--;
+				}
+			}
+			if (!subItemsRemoved) {
+				collapse(positions[i]);
+			} else if (subItemsSelected == 0) {
+				//Removed children keep their restore info, the others are collapsed
+				collapsing.add(expandable);
+				collectCollapsedItems(subItems, removals, collapsing);
+			}
+		}
+		//The load more items of the collapsed items are removed with them
+		for (IExpandable expandable : collapsing) {
+			SubItemsPage page = mPages.remove(expandable);
+			if (page != null) removals.put(page.loadMoreItem, Boolean.FALSE);
+		}
+
+		//Single scan: mark the positions and map the displayed children to their parent
+		int size = mItems.size(), first = size;
+		byte[] kinds = new byte[size];
+		Map<T, IExpandable> parents = new IdentityHashMap<T, IExpandable>();
+		for (int position = 0; position < size; position++) {
+			T item = mItems.get(position);
+			Boolean removal = removals.get(item);
+			if (removal != null) {
+				kinds[position] = removal ? REMOVE : COLLAPSE;
+				first = Math.min(first, position);
+			}
+			if (isExpanded(item)) {
+				for (T subItem : getExpandableList((IExpandable) item)) {
+					parents.put(subItem, (IExpandable) item);
+				}
+			}
+		}
+		for (IExpandable expandable : collapsing) {
+			expandable.setExpanded(false);
+		}
+
+		//Process runs of consecutive positions from the last, as they were removed one by one
+		Map<IExpandable, Map<T, Integer>> siblings = new IdentityHashMap<IExpandable, Map<T, Integer>>();
+		List<IExpandable> changedParents = new ArrayList<IExpandable>();
+		int position = size - 1;
+		while (position >= first) {
+			if (kinds[position] != REMOVE) {
+				position--;
+				continue;
+			}
+			int runEnd = position + 1;
+			while (position >= 0 && kinds[position] == REMOVE) position--;
+			first = Math.min(first, removeRun(position + 1, runEnd, kinds, parents, siblings, changedParents, payload));
+		}
+		//Removed items are hidden and pending removal
+		invalidateSubItems();
+		//Selected positions still refer to the list before the removal
+		if (clearSelection) clearSelection();
+		if (first == size) return;
+
+		//Compact the list in a single pass, collecting the removed ranges
+		int[] ranges = new int[16];
+		int rangeCount = 0, write = first;
+		List<T> deleted = new ArrayList<T>();
+		for (int read = first; read < size; read++) {
+			if (permanentDelete && kinds[read] == REMOVE) deleted.add(mItems.get(read));
+			if (kinds[read] == KEEP) {
+				if (write != read) mItems.set(write, mItems.get(read));
+				write++;
+			} else if (rangeCount > 0 && ranges[rangeCount - 2] + ranges[rangeCount - 1] == read) {
+				ranges[rangeCount - 1]++;
+			} else {
+				if (rangeCount == ranges.length) ranges = Arrays.copyOf(ranges, rangeCount << 1);
+				ranges[rangeCount++] = read;
+				ranges[rangeCount++] = 1;
+			}
+		}
+		mItems.subList(write, size).clear();
+		invalidateItems(first);
+		invalidateParents();
+
+		//Notify removals from the last range, so the positions remain valid
+		for (int i = rangeCount - 2; i >= 0; i -= 2) {
+			if (DEBUG) Log.v(TAG, "removePositions notifyRemoved positionStart=" + ranges[i] + " itemCount=" + ranges[i + 1]);
+			notifyRemoved(ranges[i], ranges[i + 1]);
+		}
+		//Notify the Parents about the change if requested
+		if (payload != null) {
+			for (IExpandable parent : changedParents) {
+				int parentPosition = getGlobalPositionOf((T) parent);
+				if (parentPosition >= 0) notifyChanged(parentPosition, 1, payload);
+			}
+		}
+		forgetItems(deleted);
+	}
+
+	/**
+	 * Creates the restore infos of a run of consecutive positions and handles the header linkage
+	 * and the orphan headers.
+	 *
+	 * @return the first position marked, orphan headers can precede the run
+	 */
+	@SuppressWarnings("unchecked")
+	private int removeRun(int runStart, int runEnd, byte[] kinds, Map<T, IExpandable> parents,
+						  Map<IExpandable, Map<T, Integer>> siblings,
+						  List<IExpandable> changedParents, @Nullable Object payload) {
+		int first = runStart;
 		//Handle header linkage
-		IHeader header = getHeaderOf(getItem(positionStart));
+		IHeader header = getHeaderOf(mItems.get(runStart));
 		if (header != null) {
-			T newItem = getItem(positionStart + itemCount);
+			T newItem = null;
+			for (int position = runEnd; position < kinds.length && newItem == null; position++) {
+				if (kinds[position] == KEEP) newItem = mItems.get(position);
+			}
 			//Header becomes orphan, also if newItem has already an header!
 			if (hasHeader(newItem)) {
-				//We cannot delete headers during remove range, otherwise positions
-				// becomes wrongs. Headers will be deleted at the end of this process.
+				//Orphan headers are deleted after the run
 				addToOrphanList(header);
 			} else {
 				//Link the new header to the newItem, and eventually
@@ -1585,19 +3056,33 @@ public class FlexibleAdapter<T extends IFlexible>
 			}
 		}
 
-		int parentPosition = -1;
-		IExpandable parent = null;
-		for (int position = positionStart; position < positionStart + itemCount; position++) {
-			T item = getItem(positionStart);
+		T refItem = null;
+		IExpandable lastParent = null;
+		int relativePosition = -1;
+		for (int position = runStart; position < runEnd; position++) {
+			T item = mItems.get(position);
 			if (!permanentDelete) {
-				assert item != null;
-				//When removing a range of children, parent is always the same :-)
-				if (parent == null) parent = getExpandableOf(item);
+				IExpandable parent = parents.get(item);
 				//Differentiate: (Expandable & NonExpandable with No parent) from (NonExpandable with a parent)
 				if (isExpandable(item) || parent == null) {
-					createRestoreItemInfo(positionStart, item, payload);
+					//All items of the run refer to the item before the run
+					if (refItem == null) refItem = getRefItemOf(runStart, kinds, parents);
+					item.setHidden(true);
+					mRestoreList.add(new RestoreInfo(refItem, item, payload));
+					if (DEBUG)
+						Log.v(TAG, "Recycled Parent " + mRestoreList.get(mRestoreList.size() - 1) + " on position=" + position);
 				} else {
-					parentPosition = createRestoreSubItemInfo(parent, item, payload);
+					//Consecutive children of the same parent share the relative position
+					if (parent != lastParent) {
+						lastParent = parent;
+						Integer siblingPosition = getSiblingPositions(parent, siblings).get(item);
+						relativePosition = siblingPosition != null ? siblingPosition : -1;
+						if (!changedParents.contains(parent)) changedParents.add(parent);
+					}
+					item.setHidden(true);
+					mRestoreList.add(new RestoreInfo((T) parent, item, relativePosition, payload));
+					if (DEBUG)
+						Log.v(TAG, "Recycled Child " + mRestoreList.get(mRestoreList.size() - 1) + " on position=" + position);
 				}
 			}
 			//If item is a Header, remove linkage from Sectionable if exists
@@ -1605,39 +3090,81 @@ public class FlexibleAdapter<T extends IFlexible>
 				ISectionable sectionable = getSectionableOf((IHeader) item);
 				if (sectionable != null) sectionable.setHeader(null);
 			}
-			//Remove item from internal list
-			mItems.remove(positionStart);
-		}
-
-		//Notify removals
-		if (parentPosition >= 0) {
-			adjustSelected = false;
-			//Notify the Children removal only if Parent is expanded
-			notifyItemRangeRemoved(positionStart, itemCount);
-			//Notify the Parent about the change if requested
-			if (payload != null) notifyItemChanged(parentPosition, payload);
-		} else {
-			//Notify range removal
-			notifyItemRangeRemoved(positionStart, itemCount);
 		}
 
 		//Remove orphan headers
 		if (removeOrphanHeaders) {
 			for (IHeader orphanHeader : mOrphanHeaders) {
-				int headerPosition = getGlobalPositionOf(orphanHeader);
-				if (headerPosition >= 0) {
+				int headerPosition = getGlobalPositionOf((T) orphanHeader);
+				if (headerPosition >= 0 && kinds[headerPosition] == KEEP) {
 					if (DEBUG) Log.d(TAG, "Removing orphan header " + orphanHeader);
-					createRestoreItemInfo(headerPosition, (T) orphanHeader, payload);
-					mItems.remove(headerPosition);
-					notifyItemRemoved(headerPosition);
+					orphanHeader.setHidden(true);
+					mRestoreList.add(new RestoreInfo(getRefItemOf(headerPosition, kinds, parents),
+							(T) orphanHeader, payload));
+					kinds[headerPosition] = ORPHAN;
+					first = Math.min(first, headerPosition);
 				}
 			}
-			mOrphanHeaders.clear();
+			mOrphanHeaders.clear();
+		}
+		return first;
+	}
+
+	/**
+	 * @return the item preceding the position, that is not yet removed, or its parent if it is
+	 * a child. Null if the position is the first.
+	 */
+	@SuppressWarnings("unchecked")
+	private T getRefItemOf(int position, byte[] kinds, Map<T, IExpandable> parents) {
+		for (int i = position - 1; i >= 0; i--) {
+			//Orphan headers are already removed
+			if (kinds[i] == ORPHAN) continue;
+			T refItem = mItems.get(i);
+			//Check if the refItem is a child of an Expanded parent, take the parent!
+			IExpandable expandable = parents.get(refItem);
+			return expandable != null ? (T) expandable : refItem;
+		}
+		return null;
+	}
+
+	/**
+	 * The relative positions are taken before any child of this removal is hidden: since
+	 * children are processed from the last, the positions of the previous are still valid.
+	 */
+	private Map<T, Integer> getSiblingPositions(IExpandable parent, Map<IExpandable, Map<T, Integer>> siblings) {
+		Map<T, Integer> positions = siblings.get(parent);
+		if (positions == null) {
+			List<T> subItems = getExpandableList(parent);
+			positions = new IdentityHashMap<T, Integer>(subItems.size());
+			for (int i = 0; i < subItems.size(); i++) {
+				positions.put(subItems.get(i), i);
+			}
+			siblings.put(parent, positions);
+		}
+		return positions;
+	}
+
+	/**
+	 * Collects the displayed children (and their headers) that are collapsed together with a
+	 * removed parent, recursively.
+	 */
+	@SuppressWarnings("unchecked")
+	private void collectCollapsedItems(List<T> subItems, Map<T, Boolean> removals,
+									   List<IExpandable> collapsing) {
+		for (T subItem : subItems) {
+			if (removals.containsKey(subItem)) continue;
+			removals.put(subItem, Boolean.FALSE);
+			//Hide also the headers of the subItems
+			IHeader header = getHeaderOf(subItem);
+			if (headersShown && header != null && !header.isHidden() && !removals.containsKey(header)) {
+				header.setHidden(true);
+				removals.put((T) header, Boolean.FALSE);
+			}
+			if (isExpanded(subItem)) {
+				collapsing.add((IExpandable) subItem);
+				collectCollapsedItems(getExpandableList((IExpandable) subItem), removals, collapsing);
+			}
 		}
-
-		//Update empty view
-		if (mUpdateListener != null && !multiRange && initialCount != getItemCount())
-			mUpdateListener.onUpdateEmptyView(getItemCount());
 	}
 
 	/**
@@ -1705,8 +3232,7 @@ public class FlexibleAdapter<T extends IFlexible>
 	@SuppressWarnings("ResourceType")
 	public void restoreDeletedItems() {
 		stopUndoTimer();
-		multiRange = true;
-		int initialCount = getItemCount();
+		beginBatch();
 		//Selection coherence: start from a clear situation
 		clearSelection();
 		//Start from latest item deleted, since others could rely on it
@@ -1729,13 +3255,14 @@ public class FlexibleAdapter<T extends IFlexible>
 				//Restore parent or simple item, if not deleted
 				if (DEBUG) Log.v(TAG, "Restore Parent " + restoreInfo);
 				//Skip item addition if filter is active
-				if (hasSearchText() && !filterExpandableObject(restoreInfo.item, getSearchText()))
+				if (hasSearchText() && !filterExpandableObject(restoreInfo.item))
 					continue;
 				//Add item
 				addItem(restoreInfo.getRestorePosition(), restoreInfo.item);
 			}
 			//Item is again visible
 			restoreInfo.item.setHidden(false);
+			invalidateSubItems();
 		}
 		//Restore selection if requested, before emptyBin
 		if (restoreSelection && mRestoreList.size() > 0) {
@@ -1749,13 +3276,12 @@ public class FlexibleAdapter<T extends IFlexible>
 					getSelectedPositions().add(getGlobalPositionOf(restoreInfo.item));
 				}
 			}
+			selectedChildrenValid = false;
 			if (DEBUG) Log.v(TAG, "Selected positions after restore " + getSelectedPositions());
 		}
 
-		//Call listener to update EmptyView
-		multiRange = false;
-		if (mUpdateListener != null && initialCount != getItemCount())
-			mUpdateListener.onUpdateEmptyView(getItemCount());
+		//Notify all changes and update EmptyView once
+		commitBatch();
 
 		emptyBin();
 	}
@@ -1765,9 +3291,40 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * <p><b>Note:</b> This method is automatically called after timer is over and after a
 	 * restoration.</p>
 	 */
-	public synchronized void emptyBin() {
+	public void emptyBin() {
 		if (DEBUG) Log.v(TAG, "emptyBin!");
+		//Items not restored are removed for good
+		List<T> removed = new ArrayList<T>();
+		for (RestoreInfo restoreInfo : mRestoreList) {
+			if (restoreInfo.item.isHidden()) removed.add(restoreInfo.item);
+		}
+		forgetItems(removed);
 		mRestoreList.clear();
+		invalidateSubItems();
+	}
+
+	/**
+	 * Drops what the Adapter keeps of the items removed for good: their entries in the search
+	 * index and the cached subItems of them and of their subItems.
+	 */
+	private void forgetItems(List<T> removed) {
+		if (removed.isEmpty()) return;
+		if (mSearchIndex != null) mSearchIndex.removeAll(removed);
+		if (mSubItemsCache.isEmpty()) return;
+		for (T item : removed) {
+			forgetSubItems(item);
+		}
+	}
+
+	private void forgetSubItems(T item) {
+		if (!isExpandable(item)) return;
+		IExpandable expandable = (IExpandable) item;
+		mSubItemsCache.remove(expandable);
+		if (!hasSubItems(expandable)) return;
+		List<T> subItems = expandable.getSubItems();
+		for (T subItem : subItems) {
+			forgetSubItems(subItem);
+		}
 	}
 
 	/**
@@ -1796,7 +3353,7 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * <p><b>Note:</b> This method is automatically called in case of restoration.</p>
 	 */
 	protected void stopUndoTimer() {
-		mHandler.removeCallbacksAndMessages(null);
+		mHandler.removeMessages(1);
 	}
 
 	public boolean isRestoreInTime() {
@@ -1862,12 +3419,14 @@ public class FlexibleAdapter<T extends IFlexible>
 	 *
 	 * @param expandable the parent item
 	 * @return a non null list of the original children minus the deleted children if some are
-	 * pending removal.
+	 * pending removal. The list is read only, it is reused until the children change.
 	 */
 	public List<T> getCurrentChildren(@NonNull IExpandable expandable) {
 		//Check item and subItems existence
 		if (expandable == null || !hasSubItems(expandable))
-			return new ArrayList<T>();
+			return Collections.emptyList();
+		SubItemsCache cache = getSubItemsCache(expandable);
+		if (cache != null && cache.current != null) return cache.current;
 
 		//Take a copy of the subItems list
 		List<T> subItems = new ArrayList<T>(expandable.getSubItems());
@@ -1875,6 +3434,7 @@ public class FlexibleAdapter<T extends IFlexible>
 		if (mRestoreList.size() > 0) {
 			subItems.removeAll(getDeletedChildren(expandable));
 		}
+		if (cache != null) cache.current = subItems = Collections.unmodifiableList(subItems);
 		return subItems;
 	}
 
@@ -1902,7 +3462,7 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * highlighted text.
 	 * <p>This happens systematically when searchText is reduced in length by the user. It doesn't
 	 * reduce performance in other cases, since the notification is triggered only in
-	 * {@link #applyAndAnimateAdditions(List, List)} when new items are not added.</p>
+	 * {@link #animateTo(List)} for the items that are not added.</p>
 	 *
 	 * @param notifyChange true to trigger {@link #notifyItemChanged(int)} while filtering,
 	 *                     false otherwise
@@ -1911,6 +3471,95 @@ public class FlexibleAdapter<T extends IFlexible>
 		this.mNotifyChangeOfUnfilteredItems = notifyChange;
 	}
 
+	/**
+	 * Sets the Executor where the items are matched against the search text, so the main
+	 * thread is not blocked while the user types.
+	 * <p>When set, {@link #filterItems(List)} returns immediately: the scan of the items and of
+	 * their children runs on the Executor, while the result is applied and animated on the
+	 * main thread. A new call of {@code filterItems} or {@link #updateDataSet(List)} cancels
+	 * the query still in flight and its result is discarded. The lists of the children are
+	 * copied on the main thread before the query starts.</p>
+	 * <b>NOTE:</b> {@link #filterObject(IFlexible, String)} and then {@link IFilterable#filter(String)}
+	 * are called from the thread of the Executor: they must not modify the items. The flags
+	 * hidden and expanded are still updated on the main thread.
+	 * <p>Default value is null (filter on the main thread).</p>
+	 *
+	 * @param executor the Executor for the filter, null to filter on the main thread
+	 * @return this adapter so the call can be chained
+	 */
+	public FlexibleAdapter setFilterExecutor(@Nullable Executor executor) {
+		mFilterExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * When the new search text extends the previous one (i.e. "ban" &rarr; "bana") and the
+	 * unfiltered list contains the same items, only the items and the children collected by
+	 * the previous filter are scanned again, instead of the entire list.
+	 * <p>A broader search text (i.e. after a backspace), a different list, a change of the
+	 * subItems or of the items pending removal fall back to the full scan.</p>
+	 * <b>NOTE:</b> Enable this only if {@link #filterObject(IFlexible, String)} is monotonic:
+	 * an item not collected for a search text must not be collected for any longer search text
+	 * starting with it. A match of the search text as a substring is monotonic, a match on
+	 * the number of words or on a score is not.
+	 * <p>Default value is false.</p>
+	 *
+	 * @param enabled true to scan only the previous result when the search text narrows,
+	 *                false to always scan the entire list
+	 * @return this adapter so the call can be chained
+	 */
+	public FlexibleAdapter setIncrementalFilterEnabled(boolean enabled) {
+		incrementalFilter = enabled;
+		if (!enabled) mLastFilter = null;
+		return this;
+	}
+
+	/**
+	 * @return true if the search index is enabled, false otherwise
+	 * @see #setSearchIndexEnabled(boolean)
+	 */
+	public boolean isSearchIndexEnabled() {
+		return mSearchIndex != null;
+	}
+
+	/**
+	 * Enables an inverted index of the n-grams of the search tokens exposed by the items
+	 * implementing {@link ISearchable}, including the children of the expandable items.
+	 * <p>The filter then collects the candidates from the index and calls
+	 * {@link #filterObject(IFlexible, String)} only on them, instead of on every item. Parents
+	 * are still displayed when a child matches. Items not implementing {@code ISearchable}
+	 * are always scanned.</p>
+	 * The index is maintained when the items are set, added, loaded, updated and removed for
+	 * good through the Adapter: each item is tokenized only once. Items of the list to filter
+	 * that were never given to the Adapter are scanned as usual. If the tokens of an item
+	 * change, update the item with {@link #updateItem(int, IFlexible, Object)} or
+	 * {@link #updateSearchIndex(IFlexible)}.
+	 * <p>Default value is false.</p>
+	 *
+	 * @param enabled true to build and use the index, false to release it
+	 * @return this adapter so the call can be chained
+	 */
+	public FlexibleAdapter setSearchIndexEnabled(boolean enabled) {
+		if (enabled && mSearchIndex == null) {
+			mSearchIndex = new SearchIndex<T>();
+			mSearchIndex.addAll(mItems);
+		} else if (!enabled) {
+			mSearchIndex = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Tokenizes again the item in the search index, if enabled, after its search tokens
+	 * changed. An item not indexed yet is added to the index.
+	 *
+	 * @param item the item whose tokens changed
+	 * @see #setSearchIndexEnabled(boolean)
+	 */
+	public void updateSearchIndex(@NonNull T item) {
+		if (mSearchIndex != null) mSearchIndex.update(item);
+	}
+
 	/**
 	 * <b>WATCH OUT! PASS ALWAYS A <u>COPY</u> OF THE ORIGINAL LIST</b>: due to internal mechanism,
 	 * items are removed and/or added in order to animate items in the final list.
@@ -1922,7 +3571,8 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * @see #filterObject(IFlexible, String)
 	 */
 	public void filterItems(@NonNull List<T> unfilteredItems, @IntRange(from = 0) long delay) {
-		//Make longer the timer for new coming deleted items
+		//Make longer the timer for new coming search text
+		cancelFilter();
 		mHandler.removeMessages(0);
 		mHandler.sendMessageDelayed(Message.obtain(mHandler, 0, unfilteredItems), delay > 0 ? delay : 0);
 	}
@@ -1940,11 +3590,38 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * <br/>- <b>NEW!</b> Expandable items are picked up and displayed if at least a child is
 	 * collected by the current filter.
 	 * <br/>- <b>NEW!</b> Items are animated thanks to {@link #animateTo(List)}.
+	 * <br/>- If an Executor is set with {@link #setFilterExecutor(Executor)}, the items are
+	 * matched on the Executor and the result is applied later on the main thread.
 	 *
 	 * @param unfilteredItems the list to filter
 	 * @see #filterObject(T, String)
 	 */
-	public synchronized void filterItems(@NonNull List<T> unfilteredItems) {
+	public void filterItems(@NonNull List<T> unfilteredItems) {
+		cancelFilter();
+		FilterTask task = new FilterTask(unfilteredItems);
+		if (mFilterExecutor != null && !task.searchText.isEmpty()) {
+			mFilterExecutor.execute(task);
+		} else {
+			task.filter();
+			applyFilter(task);
+		}
+	}
+
+	/**
+	 * Makes stale the query in flight, if any.
+	 */
+	private void cancelFilter() {
+		mFilterGeneration++;
+		mHandler.removeMessages(2);
+	}
+
+	/**
+	 * Applies the result of the filter to the items and animates the new list.
+	 * <p>Always called on the main thread.</p>
+	 *
+	 * @param task the completed filter task
+	 */
+	private void applyFilter(FilterTask task) {
 		// NOTE: In case user has deleted some items and he changes or applies a filter while
 		// deletion is pending (Undo started), in order to be consistent, we need to recalculate
 		// the new position in the new list and finally skip those items to avoid they are shown!
@@ -1953,37 +3630,42 @@ public class FlexibleAdapter<T extends IFlexible>
 		filtering = true;
 		//Reset values
 		int initialCount = getItemCount();
-		if (hasSearchText()) {
+		mLastFilter = task.searchText.isEmpty() ? null : task;
+		invalidateParents();
+		selectedChildrenValid = false;
+		//Filtered items display all their subItems
+		mPages.clear();
+		if (!task.searchText.isEmpty()) {
+			task.applyFlags();
+			invalidateSubItems();
 			int newOriginalPosition = -1;
-			for (T item : unfilteredItems) {
-				if (filterExpandableObject(item, getSearchText())) {
-					RestoreInfo restoreInfo = getPendingRemovedItem(item);
-					if (restoreInfo != null) {
-						//If found point to the new reference while filtering
-						restoreInfo.filterRefItem = ++newOriginalPosition < values.size() ? values.get(newOriginalPosition) : null;
-					} else {
-						values.add(item);
-						newOriginalPosition++;
-						if (isExpandable(item)) {
-							IExpandable expandable = (IExpandable) item;
-							if (expandable.isExpanded()) {
-								List<T> filteredSubItems = new ArrayList<T>();
-								//Add subItems if not hidden by filterObject()
-								List<T> subItems = expandable.getSubItems();
-								for (T subItem : subItems) {
-									if (!subItem.isHidden()) filteredSubItems.add(subItem);
-								}
-								//Map the view types if not done yet
-								//mapViewTypesFrom(filteredSubItems);
-								values.addAll(filteredSubItems);
-								newOriginalPosition += filteredSubItems.size();
+			for (T item : task.filteredItems) {
+				RestoreInfo restoreInfo = getPendingRemovedItem(item);
+				if (restoreInfo != null) {
+					//If found point to the new reference while filtering
+					restoreInfo.filterRefItem = ++newOriginalPosition < values.size() ? values.get(newOriginalPosition) : null;
+				} else {
+					values.add(item);
+					newOriginalPosition++;
+					if (isExpandable(item)) {
+						IExpandable expandable = (IExpandable) item;
+						if (expandable.isExpanded()) {
+							List<T> filteredSubItems = new ArrayList<T>();
+							//Add subItems if not hidden by filterObject()
+							List<T> subItems = expandable.getSubItems();
+							for (T subItem : subItems) {
+								if (!subItem.isHidden()) filteredSubItems.add(subItem);
 							}
+							//Map the view types if not done yet
+							//mapViewTypesFrom(filteredSubItems);
+							values.addAll(filteredSubItems);
+							newOriginalPosition += filteredSubItems.size();
 						}
 					}
 				}
 			}
 		} else {
-			values = unfilteredItems; //with no filter
+			values = task.unfilteredItems; //with no filter
 			if (!mRestoreList.isEmpty()) {
 				for (RestoreInfo restoreInfo : mRestoreList) {
 					//Clear the refItem generated by the filter
@@ -1997,12 +3679,20 @@ public class FlexibleAdapter<T extends IFlexible>
 		}
 
 		//Animate search results only in case of new SearchText
-		if (!mOldSearchText.equalsIgnoreCase(mSearchText)) {
-			mOldSearchText = mSearchText;
+		if (!mOldSearchText.equalsIgnoreCase(task.searchText)) {
+			mOldSearchText = task.searchText;
 			animateTo(values);
-		} else mItems = values;
+		} else {
+			//Keep the chunked or tree backing list if the user chose it
+			if (mItems instanceof ChunkedList && !(values instanceof ChunkedList))
+				values = new ChunkedList<T>(values);
+			else if (mItems instanceof TreeList && !(values instanceof TreeList))
+				values = new TreeList<T>(values);
+			mItems = values;
+			invalidateItems(0);
+		}
 		//Restore headers if necessary
-		if (mSearchText.isEmpty()) {
+		if (task.searchText.isEmpty()) {
 			showAllHeadersAfterRefresh();
 		}
 
@@ -2010,7 +3700,7 @@ public class FlexibleAdapter<T extends IFlexible>
 		filtering = false;
 
 		//Call listener to update EmptyView
-		if (mUpdateListener != null && initialCount != getItemCount())
+		if (mUpdateListener != null && !isInBatch() && initialCount != getItemCount())
 			mUpdateListener.onUpdateEmptyView(getItemCount());
 	}
 
@@ -2020,30 +3710,17 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * filtered collection.
 	 * <p>If the provided item is not an expandable it will be filtered as usual by
 	 * {@link #filterObject(T, String)}.</p>
+	 * The same routine of {@link #filterItems(List)} is used, the flags are applied at once.
 	 *
-	 * @param item       the object with subItems to be inspected
-	 * @param constraint constraint, that the object has to fulfil
+	 * @param item the object with subItems to be inspected
 	 * @return true, if the object should be in the filteredResult, false otherwise
 	 */
-	private boolean filterExpandableObject(T item, String constraint) {
-		//Reset expansion flag
-		boolean filtered = false;
-		if (isExpandable(item)) {
-			IExpandable expandable = (IExpandable) item;
-			expandable.setExpanded(false);
-			//Children scan filter
-			for (T subItem : getCurrentChildren(expandable)) {
-				//Reuse normal filter for Children
-				subItem.setHidden(!filterObject(subItem, constraint));
-				if (!filtered && !subItem.isHidden()) {
-					filtered = true;
-				}
-			}
-			//Expand if filter found text in subItems
-			expandable.setExpanded(filtered);
-		}
-		//if not filtered already, fallback to Normal filter
-		return filtered || filterObject(item, constraint);
+	private boolean filterExpandableObject(T item) {
+		FilterTask task = new FilterTask(Collections.singletonList(item));
+		boolean filtered = task.filter(item, null);
+		task.applyFlags();
+		invalidateSubItems();
+		return filtered;
 	}
 
 	/**
@@ -2074,6 +3751,13 @@ public class FlexibleAdapter<T extends IFlexible>
 	/**
 	 * Animate from the current list to the another.
 	 * <p>Used by the filter.</p>
+	 * The differences are computed in linear time by {@link ItemsDiff}: items are matched by
+	 * stable id, if {@link #hasStableIds()}, otherwise by {@code hashCode()} and {@code equals()},
+	 * which therefore must be implemented by the items. Removed, inserted and changed items are
+	 * notified in ranges, while matched items that changed their relative order are moved.
+	 * <p>An item whose content is not the same as its match, see
+	 * {@link #areItemsContentsTheSame(IFlexible, IFlexible)}, is notified as changed and the new
+	 * instance replaces the old one.</p>
 	 * Unchanged items will be notified if {@code mNotifyChangeOfUnfilteredItems} is set true, and
 	 * payload will be set as a Boolean.
 	 *
@@ -2082,48 +3766,67 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * @see #setNotifyChangeOfUnfilteredItems(boolean)
 	 */
 	public List<T> animateTo(List<T> models) {
-		applyAndAnimateRemovals(mItems, models);
-		applyAndAnimateAdditions(mItems, models);
+		ItemsDiff<T> diff = new ItemsDiff<T>(mItems, models, hasStableIds(), true, mContentComparator);
+		mItems.clear();
+		mItems.addAll(diff.getResult());
+		invalidateItems(0);
+		invalidateParents();
+		dispatchDiff(diff, mNotifyChangeOfUnfilteredItems ? Boolean.TRUE : null);
+		if (DEBUG) Log.v(TAG, "animateTo total in=" + models.size());
 		return mItems;
 	}
 
 	/**
-	 * Find out all removed items and animate them.
+	 * Called when computing the differences, by {@link #animateTo(List)} and by
+	 * {@link #updateDataSet(List, boolean)}, for each item of the new list that matches an item
+	 * of the current list: the matched items whose content is not the same are notified as
+	 * changed and their ViewHolders are bound again.
+	 * <p>By default, when matching by stable id the items are compared with {@code equals()},
+	 * otherwise the content is the same only if the instance is the same: override this method
+	 * to avoid binding again the new instances of the items whose content didn't change.</p>
+	 *
+	 * @param oldItem the item of the current list
+	 * @param newItem the matched item of the new list
+	 * @return true if the item doesn't need to be bound again, false otherwise
 	 */
-	protected void applyAndAnimateRemovals(List<T> from, List<T> newItems) {
-		int out = 0;
-		for (int i = from.size() - 1; i >= 0; i--) {
-			final T item = from.get(i);
-			if (!newItems.contains(item)) {
-				if (DEBUG) Log.v(TAG, "animateRemovals remove position=" + i + " item=" + item);
-				from.remove(i);
-				notifyItemRemoved(i);
-				out++;
-			} else {
-				if (DEBUG) Log.v(TAG, "animateRemovals   keep position=" + i + " item=" + item);
-			}
-		}
-		if (DEBUG) Log.v(TAG, "animateRemovals total out=" + out + " in=" + newItems.size());
+	protected boolean areItemsContentsTheSame(T oldItem, T newItem) {
+		return hasStableIds() ? oldItem.equals(newItem) : oldItem == newItem;
 	}
 
 	/**
-	 * Find out all added items and animate them.
+	 * Notifies the differences computed by the diff.
+	 *
+	 * @param diff             the differences from the current list
+	 * @param unchangedPayload the payload to notify also the unchanged items, null to not notify
 	 */
-	protected void applyAndAnimateAdditions(List<T> from, List<T> newItems) {
-		int out = 0;
-		for (int i = 0, count = newItems.size(); i < count; i++) {
-			final T item = newItems.get(i);
-			if (!from.contains(item)) {
-				if (DEBUG) Log.v(TAG, "animateAdditions  add position=" + i + " item=" + item);
-				from.add(i, item);
-				notifyItemInserted(i);
-			} else if (mNotifyChangeOfUnfilteredItems) {
-				out++;
-				notifyItemChanged(i, mNotifyChangeOfUnfilteredItems);
-				if (DEBUG) Log.v(TAG, "animateAdditions keep position=" + i + " item=" + item);
+	private void dispatchDiff(ItemsDiff<T> diff, Object unchangedPayload) {
+		//Selected positions don't follow the moved items
+		selectedChildrenValid = false;
+		diff.dispatch(new ItemsDiff.Callback() {
+			@Override
+			public void onRemoved(int positionStart, int itemCount) {
+				if (DEBUG) Log.v(TAG, "Diff remove positionStart=" + positionStart + " itemCount=" + itemCount);
+				notifyRemoved(positionStart, itemCount);
 			}
-		}
-		if (DEBUG) Log.v(TAG, "animateAdditions total out=" + out + " in=" + newItems.size());
+
+			@Override
+			public void onMoved(int fromPosition, int toPosition) {
+				if (DEBUG) Log.v(TAG, "Diff move fromPosition=" + fromPosition + " toPosition=" + toPosition);
+				notifyMoved(fromPosition, toPosition);
+			}
+
+			@Override
+			public void onInserted(int positionStart, int itemCount) {
+				if (DEBUG) Log.v(TAG, "Diff add positionStart=" + positionStart + " itemCount=" + itemCount);
+				notifyInserted(positionStart, itemCount);
+			}
+
+			@Override
+			public void onChanged(int positionStart, int itemCount, Object payload) {
+				if (DEBUG) Log.v(TAG, "Diff change positionStart=" + positionStart + " itemCount=" + itemCount);
+				notifyChanged(positionStart, itemCount, payload);
+			}
+		}, unchangedPayload);
 	}
 
 	/*---------------*/
@@ -2231,12 +3934,17 @@ public class FlexibleAdapter<T extends IFlexible>
 		}
 		//Perform item swap
 		Collections.swap(mItems, fromPosition, toPosition);
+		invalidateItems(Math.min(fromPosition, toPosition));
 		if ((isSelected(fromPosition) && !isSelected(toPosition)) ||
 				(!isSelected(fromPosition) && isSelected(toPosition))) {
 			super.toggleSelection(fromPosition);
 			super.toggleSelection(toPosition);
 		}
-		notifyItemMoved(fromPosition, toPosition);
+		//The selected subItems keep their parents
+		IExpandable fromParent = mSelectedParents.remove(fromPosition), toParent = mSelectedParents.remove(toPosition);
+		if (fromParent != null) mSelectedParents.put(toPosition, fromParent);
+		if (toParent != null) mSelectedParents.put(fromPosition, toParent);
+		notifyMoved(fromPosition, toPosition);
 		if (DEBUG) {
 			Log.v(TAG, "moveItem afterSwap fromItem=" + getItem(fromPosition) + " toItem=" + getItem(toPosition));
 		}
@@ -2396,6 +4104,7 @@ public class FlexibleAdapter<T extends IFlexible>
 				}
 			}
 		}
+		invalidateSubItems();
 	}
 
 	/**
@@ -2409,50 +4118,13 @@ public class FlexibleAdapter<T extends IFlexible>
 		return null;
 	}
 
-	/**
-	 * @param expandable the expandable, parent of this sub item
-	 * @param item       the deleted item
-	 * @param payload    any payload object
-	 * @return the parent position
-	 */
-	private int createRestoreSubItemInfo(IExpandable expandable, T item, @Nullable Object payload) {
-		int parentPosition = getGlobalPositionOf(expandable);
-		List<T> siblings = getExpandableList(expandable);
-		int childPosition = siblings.indexOf(item);
-		item.setHidden(true);
-		mRestoreList.add(new RestoreInfo((T) expandable, item, childPosition, payload));
-		if (DEBUG)
-			Log.v(TAG, "Recycled Child " + mRestoreList.get(mRestoreList.size() - 1) + " with Parent position=" + parentPosition);
-		return parentPosition;
-	}
-
-	/**
-	 * @param position the position of the item to retain.
-	 * @param item     the deleted item
-	 */
-	private void createRestoreItemInfo(int position, T item, @Nullable Object payload) {
-		//Collapse Parent before removal if it is expanded!
-		if (isExpanded(item))
-			collapse(position);
-		item.setHidden(true);
-		//Get the reference of the previous item (getItem returns null if outOfBounds)
-		//If null, it will be restored at position = 0
-		T refItem = getItem(position - 1);
-		if (refItem != null) {
-			//Check if the refItem is a child of an Expanded parent, take the parent!
-			IExpandable expandable = getExpandableOf(refItem);
-			if (expandable != null) refItem = (T) expandable;
-		}
-		mRestoreList.add(new RestoreInfo(refItem, item, payload));
-		if (DEBUG)
-			Log.v(TAG, "Recycled Parent " + mRestoreList.get(mRestoreList.size() - 1) + " on position=" + position);
-	}
-
 	/**
 	 * @param expandable the parent item
 	 * @return the list of the subItems not hidden
 	 */
 	private List<T> getExpandableList(IExpandable expandable) {
+		SubItemsCache cache = getSubItemsCache(expandable);
+		if (cache != null && cache.shown != null) return cache.shown;
 		List<T> subItems = new ArrayList<T>();
 		if (expandable != null && hasSubItems(expandable)) {
 			List<T> allSubItems = expandable.getSubItems();
@@ -2461,9 +4133,38 @@ public class FlexibleAdapter<T extends IFlexible>
 				if (!subItem.isHidden()) subItems.add(subItem);
 			}
 		}
+		if (cache != null) cache.shown = subItems = Collections.unmodifiableList(subItems);
 		return subItems;
 	}
 
+	/**
+	 * @return the valid cache of the subItems of the expandable, emptied if outdated, null if
+	 * the expandable doesn't count its modifications
+	 */
+	private SubItemsCache getSubItemsCache(IExpandable expandable) {
+		if (!(expandable instanceof IVersionedExpandable)) return null;
+		int version = ((IVersionedExpandable) expandable).getSubItemsVersion();
+		SubItemsCache cache = mSubItemsCache.get(expandable);
+		if (cache == null) {
+			cache = new SubItemsCache();
+			mSubItemsCache.put(expandable, cache);
+		} else if (cache.version == version && cache.adapterVersion == mSubItemsVersion) {
+			return cache;
+		}
+		cache.version = version;
+		cache.adapterVersion = mSubItemsVersion;
+		cache.shown = cache.current = null;
+		return cache;
+	}
+
+	/**
+	 * Outdates the cached subItems of all the expandable items: to call after the Adapter
+	 * changes the hidden flags of the subItems or the items pending removal.
+	 */
+	private void invalidateSubItems() {
+		mSubItemsVersion++;
+	}
+
 	/**
 	 * Allows or disallows the request to collapse the Expandable item.
 	 *
@@ -2471,28 +4172,76 @@ public class FlexibleAdapter<T extends IFlexible>
 	 * @return true if at least 1 subItem is currently selected, false if no subItems are selected
 	 */
 	private boolean hasSubItemsSelected(IExpandable expandable) {
-		for (T subItem : getExpandableList(expandable)) {
-			if (isSelected(getGlobalPositionOf(subItem))) return true;
+		return getSelectedSubItemsCount(expandable) > 0;
+	}
+
+	/**
+	 * Counts the selected subItems of an expandable item.
+	 * <p>The counters of all the parents are rebuilt with a single scan of the selected
+	 * positions after a change of the list, and kept updated by the selection methods.</p>
+	 *
+	 * @param expandable the expandable item to check
+	 * @return the number of selected subItems
+	 */
+	private int getSelectedSubItemsCount(IExpandable expandable) {
+		if (!selectedChildrenValid) {
+			mSelectedChildren.clear();
+			mSelectedParents.clear();
+			for (Integer position : getSelectedPositions()) {
+				T item = getItem(position);
+				IExpandable parent = item != null ? getExpandableOf(item) : null;
+				if (parent != null) countSelectedChild(position, parent, true);
+			}
+			selectedChildrenValid = true;
 		}
-		return false;
+		Integer count = mSelectedChildren.get(expandable);
+		return count != null ? count : 0;
 	}
 
-	private void autoScroll(int position, int subItemsCount) {
-		int firstVisibleItem = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findFirstCompletelyVisibleItemPosition();
-		int lastVisibleItem = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findLastCompletelyVisibleItemPosition();
-		int itemsToShow = position + subItemsCount - lastVisibleItem;
-		if (DEBUG)
-			Log.v(TAG, "itemsToShow=" + itemsToShow + " firstVisibleItem=" + firstVisibleItem + " lastVisibleItem=" + lastVisibleItem + " RvChildCount=" + mRecyclerView.getChildCount());
-		if (itemsToShow > 0) {
-			int scrollMax = position - firstVisibleItem;
-			int scrollMin = Math.max(0, position + subItemsCount - lastVisibleItem);
-			int scrollBy = Math.min(scrollMax, scrollMin);
-			int scrollTo = firstVisibleItem + scrollBy;
-			if (DEBUG)
-				Log.v(TAG, "scrollMin=" + scrollMin + " scrollMax=" + scrollMax + " scrollBy=" + scrollBy + " scrollTo=" + scrollTo);
-			mRecyclerView.smoothScrollToPosition(scrollTo);
-		} else if (position < firstVisibleItem) {
-			mRecyclerView.smoothScrollToPosition(position);
+	private void countSelectedChild(int position, IExpandable parent, boolean selected) {
+		if (selected) {
+			if (mSelectedParents.put(position, parent) == null) addSelectedChild(parent, 1);
+		} else if (mSelectedParents.remove(position) != null) {
+			addSelectedChild(parent, -1);
+		}
+	}
+
+	private void addSelectedChild(IExpandable parent, int delta) {
+		Integer count = mSelectedChildren.get(parent);
+		int newCount = (count != null ? count : 0) + delta;
+		if (newCount > 0) mSelectedChildren.put(parent, newCount);
+		else mSelectedChildren.remove(parent);
+	}
+
+	/**
+	 * Invalidates the cached positions, to be called after every modification of the list.
+	 *
+	 * @param positionStart the first position that changed
+	 */
+	private void invalidateItems(int positionStart) {
+		if (mPositionIndex != null) mPositionIndex.invalidate(positionStart);
+		mSectionIndex.invalidate(positionStart);
+		if (mSnapshotHandler != null && !snapshotPending) {
+			snapshotPending = true;
+			mSnapshotHandler.post(mPublishSnapshot);
+		}
+	}
+
+	private void adjustPositions(int positionStart, int itemCount) {
+		if (!filtering) {//Filtering has multiple insert and removal, we skip this process
+			if (adjustSelected)//Don't, if remove range / restore
+				adjustSelected(positionStart, itemCount);
+			else selectedChildrenValid = false;
+			adjustSelected = true;
+		} else {
+			//Selected positions don't follow the items
+			selectedChildrenValid = false;
+		}
+	}
+
+	private void clearHeadersCache() {
+		if (stickyHeaderDecoration != null) {
+			stickyHeaderDecoration.clearHeadersCache();
 		}
 	}
 
@@ -2510,6 +4259,20 @@ public class FlexibleAdapter<T extends IFlexible>
 			}
 		}
 		if (DEBUG && adjusted) Log.v(TAG, "AdjustedSelected=" + getSelectedPositions());
+		//The selected subItems keep their parents, the removed ones are not counted anymore
+		if (!adjusted || !selectedChildrenValid || mSelectedParents.isEmpty()) return;
+		Map<Integer, IExpandable> shifted = new HashMap<Integer, IExpandable>(mSelectedParents.size() << 1);
+		for (Map.Entry<Integer, IExpandable> entry : mSelectedParents.entrySet()) {
+			int position = entry.getKey();
+			if (position < startPosition) {
+				shifted.put(position, entry.getValue());
+			} else if (position >= startPosition - itemCount) {
+				shifted.put(position + itemCount, entry.getValue());
+			} else {
+				addSelectedChild(entry.getValue(), -1);
+			}
+		}
+		mSelectedParents = shifted;
 	}
 
 	/*----------------*/
@@ -2530,11 +4293,29 @@ public class FlexibleAdapter<T extends IFlexible>
 			outState.putBoolean(EXTRA_PARENT, parentSelected);
 			//Save headers shown status
 			outState.putBoolean(EXTRA_HEADERS, headersShown);
+			//Save expanded items by stable id, otherwise the items keep their own flags
+			if (hasStableIds()) outState.putLongArray(EXTRA_EXPANDED, getExpandedIds());
+		}
+	}
+
+	/**
+	 * @return the stable ids of the expanded items currently displayed
+	 */
+	private long[] getExpandedIds() {
+		long[] ids = new long[16];
+		int count = 0;
+		for (T item : mItems) {
+			if (!isExpanded(item)) continue;
+			if (count == ids.length) ids = Arrays.copyOf(ids, count << 1);
+			ids[count++] = item.getStableId();
 		}
+		return Arrays.copyOf(ids, count);
 	}
 
 	/**
 	 * Restore the previous state of the expanded items.
+	 * <p>The expanded items are restored by stable id only if {@link #hasStableIds()},
+	 * otherwise the items keep their own flags.</p>
 	 *
 	 * @param savedInstanceState Previous state
 	 */
@@ -2542,12 +4323,23 @@ public class FlexibleAdapter<T extends IFlexible>
 		if (savedInstanceState != null) {
 			//Restore selection state
 			super.onRestoreInstanceState(savedInstanceState);
+			selectedChildrenValid = false;
 			//Restore selection coherence
 			parentSelected = savedInstanceState.getBoolean(EXTRA_PARENT);
 			childSelected = savedInstanceState.getBoolean(EXTRA_CHILD);
+			//Restore expanded items in a single pass
+			long[] expandedIds = savedInstanceState.getLongArray(EXTRA_EXPANDED);
+			List<T> lazyItems = new ArrayList<T>();
+			if (expandedIds != null && hasStableIds()) {
+				LongIntHashMap ids = new LongIntHashMap(expandedIds.length);
+				for (long id : expandedIds) ids.put(id, 1);
+				if (flattenItems(ids, lazyItems)) notifyRefreshed();
+			}
 			//Restore headers shown status
 			headersShown = savedInstanceState.getBoolean(EXTRA_HEADERS);
 			showAllHeadersAfterRefresh();
+			//Unloaded items are expanded through the loader
+			expandLazyItems(lazyItems);
 		}
 	}
 
@@ -2555,6 +4347,46 @@ public class FlexibleAdapter<T extends IFlexible>
 	/* INNER CLASSES */
 	/*---------------*/
 
+	/**
+	 * Creates the items displayed after the pages of subItems of the expanded items.
+	 *
+	 * @see #setSubItemsPageSize(int, SubItemsPager)
+	 */
+	public interface SubItemsPager<T extends IFlexible> {
+		/**
+		 * Called on expansion, when the subItems are more than a page.
+		 *
+		 * @param expandable the item to expand
+		 * @return a new load more item, different for each expanded item, null to display
+		 * all the subItems of this item
+		 */
+		T onCreateLoadMoreItem(IExpandable expandable);
+	}
+
+	/**
+	 * Loads the subItems of the {@link ILazyExpandable} items.
+	 *
+	 * @see #setSubItemsLoader(SubItemsLoader, Executor)
+	 */
+	public interface SubItemsLoader<T extends IFlexible> {
+		/**
+		 * Called on the main thread when the item is expanded, before its subItems are loaded.
+		 *
+		 * @param expandable the item to expand
+		 * @return the item to display while loading, null to not display any
+		 */
+		T onCreateLoadingItem(ILazyExpandable expandable);
+
+		/**
+		 * Called on the Executor to load the subItems: the items of the Adapter must not be
+		 * modified here.
+		 *
+		 * @param expandable the item to expand
+		 * @return the subItems, null if they cannot be loaded and the item remains collapsed
+		 */
+		List<T> onLoadSubItems(ILazyExpandable expandable);
+	}
+
 	/**
 	 * @since 03/01/2016
 	 */
@@ -2660,42 +4492,268 @@ public class FlexibleAdapter<T extends IFlexible>
 	 */
 	private class ExpandableAdapterDataObserver extends RecyclerView.AdapterDataObserver {
 
-		private void adjustPositions(int positionStart, int itemCount) {
-			if (!filtering) {//Filtering has multiple insert and removal, we skip this process
-				if (adjustSelected)//Don't, if remove range / restore
-					adjustSelected(positionStart, itemCount);
-				adjustSelected = true;
-			}
-		}
-
-		private void clearHeadersCache() {
-			if (headersSticky) {
-				stickyHeaderDecoration.clearHeadersCache();
-			}
+		/* The parents of the children added or removed outside the Adapter are unknown */
+		private void onExternalChange() {
+			if (!notifying && !batchDispatching) invalidateParents();
 		}
 
 		/* Triggered by {@link #notifyDataSetChanged()} */
 		@Override
 		public void onChanged() {
-			initializeItems();
+			//Lists refreshed by the Adapter are already flattened
+			if (!refreshing) initializeItems();
+			mSectionIndex.invalidate(0);
 			clearHeadersCache();
 		}
 
+		/* Positions of a batch are adjusted while recording, sticky headers follow the dispatch */
 		@Override
 		public void onItemRangeInserted(int positionStart, int itemCount) {
+			mSectionIndex.invalidate(positionStart);
+			onExternalChange();
+			if (stickyHeaderDecoration != null)
+				stickyHeaderDecoration.onItemRangeInserted(positionStart, itemCount);
+			if (batchDispatching) return;
 			adjustPositions(positionStart, itemCount);
-			clearHeadersCache();
 		}
 
 		@Override
 		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			mSectionIndex.invalidate(positionStart);
+			onExternalChange();
+			if (stickyHeaderDecoration != null)
+				stickyHeaderDecoration.onItemRangeRemoved(positionStart, itemCount);
+			if (batchDispatching) return;
 			adjustPositions(positionStart, -itemCount);
-			clearHeadersCache();
+		}
+
+		/* A changed item may hold another header, also called with payload */
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			mSectionIndex.invalidate(positionStart);
+			if (stickyHeaderDecoration != null)
+				stickyHeaderDecoration.onItemRangeChanged(positionStart, itemCount);
 		}
 
 		@Override
 		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-			clearHeadersCache();
+			mSectionIndex.invalidate(Math.min(fromPosition, toPosition));
+			onExternalChange();
+			if (stickyHeaderDecoration != null)
+				stickyHeaderDecoration.onItemMoved(fromPosition, toPosition);
+		}
+	}
+
+	/**
+	 * Matches the items against the search text, without modifying them: the flags hidden
+	 * and expanded are collected and applied later, on the main thread.
+	 */
+	private class FilterTask implements Runnable {
+		final int generation;
+		final String searchText;
+		final List<T> unfilteredItems;
+		//Items pending removal, the next query cannot refine this one if they change
+		final Set<T> deletedItems;
+		//Children not pending removal, taken on the main thread
+		final Map<T, List<T>> children = new IdentityHashMap<T, List<T>>();
+		final List<T> filteredItems = new ArrayList<T>(),
+				shownChildren = new ArrayList<T>(), hiddenChildren = new ArrayList<T>();
+		final List<IExpandable> expandedParents = new ArrayList<IExpandable>(),
+				collapsedParents = new ArrayList<IExpandable>();
+		//Copy of the unfiltered items, to recognize the same list in the next query
+		Object[] source;
+		FilterTask previous;
+		final SearchIndex<T> searchIndex;
+
+		FilterTask(List<T> unfilteredItems) {
+			this.generation = mFilterGeneration;
+			this.searchText = mSearchText;
+			this.unfilteredItems = unfilteredItems;
+			this.deletedItems = mRestoreList.isEmpty() ? null : new HashSet<T>(getDeletedItems());
+			this.previous = incrementalFilter ? mLastFilter : null;
+			this.searchIndex = mSearchIndex;
+			if (searchText.isEmpty()) return;
+			for (T item : unfilteredItems) {
+				if (isExpandable(item)) children.put(item, getCurrentChildren((IExpandable) item));
+			}
+		}
+
+		@Override
+		public void run() {
+			if (filter()) mHandler.sendMessage(Message.obtain(mHandler, 2, this));
+		}
+
+		/**
+		 * @return false if the query became stale, true otherwise
+		 */
+		boolean filter() {
+			if (searchText.isEmpty()) return true;
+			List<T> items = unfilteredItems;
+			Set<T> candidateChildren = null;
+			if (isNarrowing()) {
+				if (DEBUG) Log.v(TAG, "Narrowing filter from " + previous.searchText + " to " + searchText);
+				//Only the items and the children collected by the previous query can match
+				source = previous.source;
+				items = previous.filteredItems;
+				candidateChildren = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+				candidateChildren.addAll(previous.shownChildren);
+			} else {
+				source = unfilteredItems.toArray();
+				if (searchIndex != null) {
+					//Only the candidates of the index can match
+					candidateChildren = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+					items = searchIndex.query(unfilteredItems, children, searchText, candidateChildren);
+				}
+			}
+			previous = null;
+			for (T item : items) {
+				if (generation != mFilterGeneration) {
+					if (DEBUG) Log.v(TAG, "Filter cancelled for searchText=" + searchText);
+					return false;
+				}
+				if (filter(item, candidateChildren)) filteredItems.add(item);
+			}
+			return true;
+		}
+
+		/**
+		 * Performs the filter on the children of an expandable item, then on the item itself.
+		 *
+		 * @param item              the item to inspect
+		 * @param candidateChildren the only children that can match, null to inspect them all
+		 * @return true if the item or at least a child is collected by the search text
+		 */
+		boolean filter(T item, Set<T> candidateChildren) {
+			boolean filtered = false;
+			if (isExpandable(item)) {
+				IExpandable expandable = (IExpandable) item;
+				List<T> subItems = children.get(item);
+				if (subItems != null) {
+					for (T subItem : subItems) {
+						//Children that are not candidates cannot match
+						if (candidateChildren != null && !candidateChildren.contains(subItem)) {
+							hiddenChildren.add(subItem);
+							continue;
+						}
+						//Reuse normal filter for Children
+						if (filterObject(subItem, searchText)) {
+							shownChildren.add(subItem);
+							filtered = true;
+						} else {
+							hiddenChildren.add(subItem);
+						}
+					}
+				}
+				//Expand if filter found text in subItems
+				if (filtered) expandedParents.add(expandable);
+				else collapsedParents.add(expandable);
+			}
+			//if not filtered already, fallback to Normal filter
+			return filtered || filterObject(item, searchText);
+		}
+
+		/**
+		 * @return true if the previous query can be refined, false if a full scan is needed
+		 */
+		private boolean isNarrowing() {
+			if (previous == null || !searchText.startsWith(previous.searchText)) return false;
+			if (deletedItems == null ? previous.deletedItems != null : !deletedItems.equals(previous.deletedItems))
+				return false;
+			Object[] previousSource = previous.source;
+			if (previousSource.length != unfilteredItems.size()) return false;
+			int i = 0;
+			for (T item : unfilteredItems) {
+				if (item != previousSource[i++]) return false;
+			}
+			//SubItems modified outside the adapter
+			for (Map.Entry<T, List<T>> entry : children.entrySet()) {
+				List<T> subItems = entry.getValue(), previousSubItems = previous.children.get(entry.getKey());
+				if (subItems == previousSubItems) continue;
+				if (previousSubItems == null || previousSubItems.size() != subItems.size()) return false;
+				for (int j = 0; j < subItems.size(); j++) {
+					if (subItems.get(j) != previousSubItems.get(j)) return false;
+				}
+			}
+			return true;
+		}
+
+		void applyFlags() {
+			for (IExpandable expandable : expandedParents) expandable.setExpanded(true);
+			for (IExpandable expandable : collapsedParents) expandable.setExpanded(false);
+			for (T subItem : shownChildren) subItem.setHidden(false);
+			for (T subItem : hiddenChildren) subItem.setHidden(true);
+		}
+	}
+
+	/**
+	 * Lists of subItems computed for a version of an expandable item.
+	 */
+	private class SubItemsCache {
+		int version, adapterVersion;
+		//Not hidden subItems, and subItems not pending removal
+		List<T> shown, current;
+	}
+
+	/**
+	 * Pages of subItems displayed for an expanded item.
+	 */
+	private class SubItemsPage {
+		final IExpandable expandable;
+		final T loadMoreItem;
+		boolean loading = false;
+		//Last displayed subItem and index of the next one, when the page was displayed
+		T lastChild;
+		int nextIndex;
+
+		SubItemsPage(IExpandable expandable, T loadMoreItem) {
+			this.expandable = expandable;
+			this.loadMoreItem = loadMoreItem;
+		}
+
+		void setLastChild(T lastChild, int nextIndex) {
+			this.lastChild = lastChild;
+			if (nextIndex >= 0) this.nextIndex = nextIndex;
+		}
+
+		/**
+		 * @return the index of the first subItem of the next page, following the last
+		 * displayed subItem if the subItems changed in the meantime
+		 */
+		int getNextIndex() {
+			int index = indexOfSubItem(expandable, lastChild);
+			return index >= 0 ? index + 1 : nextIndex;
+		}
+	}
+
+	/**
+	 * Loads the subItems of a lazy item on the Executor, then posts them to the main thread.
+	 */
+	private class LoadTask implements Runnable {
+		final ILazyExpandable expandable;
+		final SubItemsLoader<T> loader;
+		T loadingItem;
+		List<T> subItems;
+		volatile boolean cancelled = false;
+
+		LoadTask(ILazyExpandable expandable) {
+			this.expandable = expandable;
+			this.loader = mSubItemsLoader;
+		}
+
+		List<T> load() {
+			try {
+				return loader.onLoadSubItems(expandable);
+			} catch (RuntimeException e) {
+				Log.e(TAG, "Cannot load the subItems: " + e.getMessage(), e);
+				return null;
+			}
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) return;
+			subItems = load();
+			if (!cancelled) mHandler.sendMessage(Message.obtain(mHandler, 3, this));
 		}
 	}
 
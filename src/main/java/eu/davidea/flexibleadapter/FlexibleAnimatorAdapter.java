@@ -25,8 +25,6 @@ import android.support.annotation.FloatRange;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.v4.view.ViewCompat;
-import android.support.v7.widget.GridLayoutManager;
-import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.util.SparseArray;
@@ -98,7 +96,18 @@ public abstract class FlexibleAnimatorAdapter extends SelectableAdapter {
 	 * Simple Constructor for Animator Adapter.
 	 */
 	public FlexibleAnimatorAdapter() {
+		this(false);
+	}
+
+	/**
+	 * Constructor for Animator Adapter with stable ids.
+	 * <p>Stable ids must be set before any observer is registered.</p>
+	 *
+	 * @param stableIds true if each item has a stable id, false otherwise
+	 */
+	public FlexibleAnimatorAdapter(boolean stableIds) {
 		super();
+		setHasStableIds(stableIds);
 
 		//Get notified when an item is changed (should skip animation)
 		mAnimatorNotifierObserver = new AnimatorAdapterDataObserver();
@@ -288,8 +297,8 @@ public abstract class FlexibleAnimatorAdapter extends SelectableAdapter {
 	 */
 	private long calculateAnimationDelay1(int position) {
 
-		int lastVisiblePosition = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findLastCompletelyVisibleItemPosition();
-		int firstVisiblePosition = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findFirstCompletelyVisibleItemPosition();
+		int lastVisiblePosition = mScrollCoordinator.getLastCompletelyVisiblePosition();
+		int firstVisiblePosition = mScrollCoordinator.getFirstCompletelyVisiblePosition();
 
 		//Use always the max child count reached
 		if (mMaxChildViews < mRecyclerView.getChildCount())
@@ -324,8 +333,8 @@ public abstract class FlexibleAnimatorAdapter extends SelectableAdapter {
 	private long calculateAnimationDelay2(int position) {
 		long delay;
 
-		int lastVisiblePosition = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findLastCompletelyVisibleItemPosition();
-		int firstVisiblePosition = ((LinearLayoutManager) mRecyclerView.getLayoutManager()).findFirstCompletelyVisibleItemPosition();
+		int lastVisiblePosition = mScrollCoordinator.getLastCompletelyVisiblePosition();
+		int firstVisiblePosition = mScrollCoordinator.getFirstCompletelyVisiblePosition();
 
 		if (mLastAnimatedPosition > lastVisiblePosition)
 			lastVisiblePosition = mLastAnimatedPosition;
@@ -343,8 +352,8 @@ public abstract class FlexibleAnimatorAdapter extends SelectableAdapter {
 			delay = mStepDelay;
 			mInitialDelay = 0L;
 
-			if (mRecyclerView.getLayoutManager() instanceof GridLayoutManager) {
-				int numColumns = ((GridLayoutManager) mRecyclerView.getLayoutManager()).getSpanCount();
+			int numColumns = mScrollCoordinator.getSpanCount();
+			if (numColumns > 1) {
 				delay = mStepDelay * (position % numColumns);
 			}
 
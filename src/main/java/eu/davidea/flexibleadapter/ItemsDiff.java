@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.utils.LongIntHashMap;
+
+/**
+ * Computes the differences between the current list of the Adapter and a new list, as the
+ * smallest sequence of range removals, moves, range insertions and range changes.
+ * <p>Items are matched in linear time through a hash map, keyed by the stable id or by the
+ * item itself ({@code hashCode()} and {@code equals()}). The matched items that keep their
+ * relative order are found with a Longest Increasing Subsequence in {@code O(k log k)}: only
+ * the others are moved. Each move costs {@code O(k)}, where {@code k} is the number of
+ * matched items.</p>
+ * The notifications are dispatched in the order: removals (from the last), moves, insertions
+ * and changes (from the first), so that each position is valid at the moment it is notified.
+ */
+class ItemsDiff<T extends IFlexible> {
+
+	/**
+	 * Receives the notifications of the differences.
+	 */
+	interface Callback {
+		void onRemoved(int positionStart, int itemCount);
+
+		void onMoved(int fromPosition, int toPosition);
+
+		void onInserted(int positionStart, int itemCount);
+
+		void onChanged(int positionStart, int itemCount, Object payload);
+	}
+
+	/**
+	 * Decides whether a matched item must be notified as changed.
+	 */
+	interface ContentComparator<T> {
+		boolean areContentsTheSame(T oldItem, T newItem);
+	}
+
+	private final int mOldSize;
+	//For each old position the new position, -1 if removed
+	private final int[] mOldToNew;
+	//For each new position the old position, -1 if inserted
+	private final int[] mNewToOld;
+	//For each new position, true if the matched item has a different content
+	private final boolean[] mChanged;
+	//For each new position, true if the matched item doesn't need to move
+	private final boolean[] mStill;
+	private final List<T> mResult;
+
+	/**
+	 * @param oldItems   the current list
+	 * @param newItems   the new list
+	 * @param byStableId true to match the items by stable id, false by {@code equals()}
+	 */
+	ItemsDiff(List<T> oldItems, List<T> newItems, boolean byStableId) {
+		this(oldItems, newItems, byStableId, true);
+	}
+
+	/**
+	 * @param oldItems      the current list
+	 * @param newItems      the new list
+	 * @param byStableId    true to match the items by stable id, false by {@code equals()}
+	 * @param keepUnchanged true to keep the old instances of the unchanged items in the result,
+	 *                      false to always take the new instances
+	 */
+	ItemsDiff(List<T> oldItems, List<T> newItems, boolean byStableId, boolean keepUnchanged) {
+		this(oldItems, newItems, byStableId, keepUnchanged, null);
+	}
+
+	/**
+	 * @param oldItems      the current list
+	 * @param newItems      the new list
+	 * @param byStableId    true to match the items by stable id, false by {@code equals()}
+	 * @param keepUnchanged true to keep the old instances of the unchanged items in the result,
+	 *                      false to always take the new instances
+	 * @param comparator    compares the content of the matched items, null to compare them
+	 *                      with {@code equals()}
+	 */
+	ItemsDiff(List<T> oldItems, List<T> newItems, boolean byStableId, boolean keepUnchanged,
+			  ContentComparator<T> comparator) {
+		mOldSize = oldItems.size();
+		int newSize = newItems.size();
+		mOldToNew = new int[mOldSize];
+		mNewToOld = new int[newSize];
+		mChanged = new boolean[newSize];
+		mStill = new boolean[newSize];
+		Arrays.fill(mNewToOld, -1);
+
+		//Match the items, the first occurrence wins
+		if (byStableId) {
+			LongIntHashMap positions = new LongIntHashMap(newSize);
+			for (int i = newSize - 1; i >= 0; i--) {
+				positions.put(newItems.get(i).getStableId(), i);
+			}
+			for (int i = 0; i < mOldSize; i++) {
+				match(i, positions.get(oldItems.get(i).getStableId(), -1));
+			}
+		} else {
+			Map<T, Integer> positions = new HashMap<T, Integer>(newSize << 1);
+			for (int i = newSize - 1; i >= 0; i--) {
+				positions.put(newItems.get(i), i);
+			}
+			for (int i = 0; i < mOldSize; i++) {
+				Integer position = positions.get(oldItems.get(i));
+				match(i, position != null ? position : -1);
+			}
+		}
+
+		//Build the final list, optionally keeping the old instances of unchanged items
+		mResult = new ArrayList<T>(newSize);
+		for (int j = 0; j < newSize; j++) {
+			T newItem = newItems.get(j);
+			if (mNewToOld[j] >= 0) {
+				T oldItem = oldItems.get(mNewToOld[j]);
+				mChanged[j] = comparator != null ? !comparator.areContentsTheSame(oldItem, newItem)
+						: !oldItem.equals(newItem);
+				mResult.add(mChanged[j] || !keepUnchanged ? newItem : oldItem);
+			} else {
+				mResult.add(newItem);
+			}
+		}
+		findStillItems();
+	}
+
+	private void match(int oldPosition, int newPosition) {
+		if (newPosition >= 0 && mNewToOld[newPosition] < 0) {
+			mOldToNew[oldPosition] = newPosition;
+			mNewToOld[newPosition] = oldPosition;
+		} else {
+			mOldToNew[oldPosition] = -1;
+		}
+	}
+
+	/**
+	 * Longest Increasing Subsequence of the new positions of the matched items, in old order.
+	 */
+	private void findStillItems() {
+		int[] sequence = new int[mOldSize];
+		int count = 0;
+		for (int i = 0; i < mOldSize; i++) {
+			if (mOldToNew[i] >= 0) sequence[count++] = mOldToNew[i];
+		}
+		//tails[l] = index in sequence of the smallest tail of a subsequence of length l+1
+		int[] tails = new int[count], previous = new int[count];
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			int low = 0, high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (sequence[tails[mid]] < sequence[i]) low = mid + 1;
+				else high = mid;
+			}
+			previous[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) length++;
+		}
+		for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+			mStill[sequence[i]] = true;
+		}
+	}
+
+	/**
+	 * @return the new list, with the old instances of the unchanged items if requested
+	 */
+	List<T> getResult() {
+		return mResult;
+	}
+
+	/**
+	 * @param oldPosition a position in the current list
+	 * @return the position of the matched item in the new list, -1 if removed
+	 */
+	int getNewPosition(int oldPosition) {
+		return mOldToNew[oldPosition];
+	}
+
+	/**
+	 * Dispatches the differences to the callback.
+	 *
+	 * @param callback         the receiver of the notifications
+	 * @param unchangedPayload the payload to notify also the unchanged items, null to not notify
+	 */
+	void dispatch(Callback callback, Object unchangedPayload) {
+		//Removals from the last, merging consecutive positions
+		for (int i = mOldSize - 1; i >= 0; ) {
+			if (mOldToNew[i] >= 0) {
+				i--;
+				continue;
+			}
+			int end = i;
+			while (i >= 0 && mOldToNew[i] < 0) i--;
+			callback.onRemoved(i + 1, end - i);
+		}
+
+		//Moves: the current list holds the new positions of the matched items
+		int newSize = mNewToOld.length, count = 0;
+		int[] current = new int[mOldSize];
+		for (int i = 0; i < mOldSize; i++) {
+			if (mOldToNew[i] >= 0) current[count++] = mOldToNew[i];
+		}
+		boolean[] placed = Arrays.copyOf(mStill, newSize);
+		for (int j = 0; j < newSize; j++) {
+			if (mNewToOld[j] < 0 || placed[j]) continue;
+			int from = 0, to = 0;
+			while (current[from] != j) from++;
+			System.arraycopy(current, from + 1, current, from, count - from - 1);
+			//Place it after the placed item that precedes it in the new list
+			for (int p = 0; p < count - 1; p++) {
+				if (placed[current[p]] && current[p] < j) to = p + 1;
+			}
+			System.arraycopy(current, to, current, to + 1, count - to - 1);
+			current[to] = j;
+			placed[j] = true;
+			if (from != to) callback.onMoved(from, to);
+		}
+
+		//Insertions and changes from the first, merging consecutive positions
+		int runStart = -1, runType = -1;
+		Object runPayload = null;
+		for (int j = 0; j <= newSize; j++) {
+			int type = -1;
+			Object payload = null;
+			if (j < newSize) {
+				if (mNewToOld[j] < 0) {
+					type = 0;
+				} else if (mChanged[j] || unchangedPayload != null) {
+					type = 1;
+					payload = mChanged[j] ? null : unchangedPayload;
+				}
+			}
+			if (runType >= 0 && (type != runType || payload != runPayload)) {
+				if (runType == 0) callback.onInserted(runStart, j - runStart);
+				else callback.onChanged(runStart, j - runStart, runPayload);
+				runType = -1;
+			}
+			if (type >= 0 && runType < 0) {
+				runStart = j;
+				runType = type;
+				runPayload = payload;
+			}
+		}
+	}
+
+}
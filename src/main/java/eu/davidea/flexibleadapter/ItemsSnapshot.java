@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.annotation.IntRange;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import eu.davidea.flexibleadapter.items.IFlexible;
+
+/**
+ * Immutable copy of the items displayed by {@link FlexibleAdapter}, published by the main
+ * thread after each committed mutation.
+ * <p>A snapshot can be read from any thread without locking: its content never changes and
+ * the version tells the readers if two snapshots represent the same state of the Adapter.</p>
+ *
+ * @see FlexibleAdapter#setSnapshotsEnabled(boolean)
+ * @see FlexibleAdapter#getItemsSnapshot()
+ */
+public final class ItemsSnapshot<T extends IFlexible> {
+
+	private final Object[] mItems;
+	private final long mVersion;
+	private List<T> mList;
+
+	ItemsSnapshot(Object[] items, long version) {
+		mItems = items;
+		mVersion = version;
+	}
+
+	/**
+	 * @return the version of this snapshot, incremented at each publication
+	 */
+	public long getVersion() {
+		return mVersion;
+	}
+
+	public int size() {
+		return mItems.length;
+	}
+
+	public boolean isEmpty() {
+		return mItems.length == 0;
+	}
+
+	/**
+	 * @param position the position of the item in the snapshot
+	 * @return the item at the given position
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(@IntRange(from = 0) int position) {
+		return (T) mItems[position];
+	}
+
+	/**
+	 * @return a read-only list view of this snapshot
+	 */
+	public List<T> asList() {
+		if (mList == null) mList = new SnapshotList();
+		return mList;
+	}
+
+	private class SnapshotList extends AbstractList<T> implements RandomAccess {
+
+		@Override
+		public T get(int location) {
+			return ItemsSnapshot.this.get(location);
+		}
+
+		@Override
+		public int size() {
+			return mItems.length;
+		}
+	}
+
+}
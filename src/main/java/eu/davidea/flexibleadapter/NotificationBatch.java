@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the notifications of a batch opened with {@link FlexibleAdapter#beginBatch()} and
+ * merges each one with the previous, when they describe contiguous ranges of the same type.
+ * <p>The notifications are dispatched in the same order they were recorded, so the positions
+ * remain coherent with the sequence of changes performed on the list.</p>
+ */
+class NotificationBatch {
+
+	static final int INSERTED = 0, REMOVED = 1, CHANGED = 2, MOVED = 3;
+
+	private final List<Operation> mOperations = new ArrayList<Operation>();
+
+	/**
+	 * Records a notification, merging it with the last one if possible.
+	 *
+	 * @param type          one of {@link #INSERTED}, {@link #REMOVED}, {@link #CHANGED}, {@link #MOVED}
+	 * @param positionStart the first position, or the initial position for a move
+	 * @param itemCount     the number of items, or the final position for a move
+	 * @param payload       the payload of a change
+	 */
+	void add(int type, int positionStart, int itemCount, Object payload) {
+		if (positionStart < 0 || (type != MOVED && itemCount <= 0)) return;
+		Operation last = mOperations.isEmpty() ? null : mOperations.get(mOperations.size() - 1);
+		if (last != null && merge(last, type, positionStart, itemCount, payload)) return;
+		mOperations.add(new Operation(type, positionStart, itemCount, payload));
+	}
+
+	private boolean merge(Operation last, int type, int positionStart, int itemCount, Object payload) {
+		int lastEnd = last.positionStart + last.itemCount;
+		switch (type) {
+			case INSERTED:
+				//Insertion inside or at the edges of the previous inserted range
+				if (last.type == INSERTED && positionStart >= last.positionStart && positionStart <= lastEnd) {
+					last.itemCount += itemCount;
+					return true;
+				}
+				return false;
+			case REMOVED:
+				if (last.type != REMOVED) return false;
+				//Forward removal: same start. Backward removal: ends where previous starts
+				if (positionStart == last.positionStart) {
+					last.itemCount += itemCount;
+					return true;
+				} else if (positionStart + itemCount == last.positionStart) {
+					last.positionStart = positionStart;
+					last.itemCount += itemCount;
+					return true;
+				}
+				return false;
+			case CHANGED:
+				//A change on items just inserted is useless: they will be bound anyway
+				if (last.type == INSERTED && positionStart >= last.positionStart &&
+						positionStart + itemCount <= lastEnd) {
+					return true;
+				}
+				//Overlapping or adjacent ranges with same payload
+				if (last.type == CHANGED && samePayload(last.payload, payload) &&
+						positionStart <= lastEnd && positionStart + itemCount >= last.positionStart) {
+					int end = Math.max(lastEnd, positionStart + itemCount);
+					last.positionStart = Math.min(last.positionStart, positionStart);
+					last.itemCount = end - last.positionStart;
+					return true;
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean samePayload(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	boolean isEmpty() {
+		return mOperations.isEmpty();
+	}
+
+	void clear() {
+		mOperations.clear();
+	}
+
+	/**
+	 * Dispatches the recorded notifications and clears the batch.
+	 *
+	 * @param target the receiver of the notifications, usually forwarding them to the Adapter
+	 * @return the number of notifications dispatched
+	 */
+	int dispatch(RecyclerView.AdapterDataObserver target) {
+		int count = mOperations.size();
+		for (Operation operation : mOperations) {
+			switch (operation.type) {
+				case INSERTED:
+					target.onItemRangeInserted(operation.positionStart, operation.itemCount);
+					break;
+				case REMOVED:
+					target.onItemRangeRemoved(operation.positionStart, operation.itemCount);
+					break;
+				case CHANGED:
+					target.onItemRangeChanged(operation.positionStart, operation.itemCount, operation.payload);
+					break;
+				case MOVED:
+					target.onItemRangeMoved(operation.positionStart, operation.itemCount, 1);
+					break;
+			}
+		}
+		mOperations.clear();
+		return count;
+	}
+
+	private static class Operation {
+		final int type;
+		int positionStart, itemCount;
+		final Object payload;
+
+		Operation(int type, int positionStart, int itemCount, Object payload) {
+			this.type = type;
+			this.positionStart = positionStart;
+			this.itemCount = itemCount;
+			this.payload = payload;
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import java.util.HashMap;
+import java.util.List;
+
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.utils.LongIntHashMap;
+
+/**
+ * Lazy item-to-position index used by {@link FlexibleAdapter} to resolve the global position
+ * of an item without scanning the whole list.
+ * <p>Positions below the <i>valid count</i> are always correct and point to the first
+ * occurrence of the item. A mutation only lowers the valid count, the index is then extended
+ * on the next lookup: consecutive lookups after a mutation at position {@code p} cost a single
+ * pass from {@code p} to the end of the list, and a constant time afterwards.</p>
+ * The index can be keyed by item, then items must implement {@code hashCode()} consistently
+ * with {@code equals()}, or by {@link IFlexible#getStableId()}, then the positions are kept in
+ * a primitive map and no boxing occurs. An item not found by its stable id, or found with a
+ * stable id shared by a different item, is searched again with {@code equals()} by a linear
+ * scan, as the list would do.
+ */
+class PositionIndex {
+
+	private final HashMap<Object, Integer> mPositions;
+	private final LongIntHashMap mStableIds;
+	private int mValidCount = 0;
+
+	/**
+	 * @param byStableId true to key the index by stable id, false to key it by item
+	 */
+	PositionIndex(boolean byStableId) {
+		mPositions = byStableId ? null : new HashMap<Object, Integer>();
+		mStableIds = byStableId ? new LongIntHashMap() : null;
+	}
+
+	/**
+	 * Invalidates all the positions starting from the passed position.
+	 *
+	 * @param positionStart the first position that changed
+	 */
+	void invalidate(int positionStart) {
+		if (positionStart < mValidCount) {
+			mValidCount = Math.max(0, positionStart);
+		}
+	}
+
+	/**
+	 * Drops all the entries, the index will be rebuilt at the next lookup.
+	 */
+	void clear() {
+		if (mPositions != null) mPositions.clear();
+		else mStableIds.clear();
+		mValidCount = 0;
+	}
+
+	/**
+	 * @param items the current list of the Adapter
+	 * @param item  the item to find
+	 * @return the position of the first occurrence of the item, -1 if not found
+	 */
+	int indexOf(List<? extends IFlexible> items, IFlexible item) {
+		if (mStableIds != null) {
+			int position = indexOfStableId(items, item.getStableId());
+			if (position >= 0 && item.equals(items.get(position))) return position;
+			//Stable id not unique or not consistent with equals()
+			return items.indexOf(item);
+		}
+		int position = lookup(items, item);
+		if (position >= 0 || mValidCount == items.size()) return position;
+		extend(items);
+		return lookup(items, item);
+	}
+
+	/**
+	 * Available only if the index is keyed by stable id.
+	 *
+	 * @param items    the current list of the Adapter
+	 * @param stableId the stable id of the item to find
+	 * @return the position of the first item with such stable id, -1 if not found
+	 */
+	int indexOfStableId(List<? extends IFlexible> items, long stableId) {
+		int position = lookupStableId(items, stableId);
+		if (position >= 0 || mValidCount == items.size()) return position;
+		extendStableIds(items);
+		return lookupStableId(items, stableId);
+	}
+
+	private int lookup(List<? extends IFlexible> items, IFlexible item) {
+		Integer position = mPositions.get(item);
+		if (position != null && position < mValidCount && item.equals(items.get(position)))
+			return position;
+		return -1;
+	}
+
+	private int lookupStableId(List<? extends IFlexible> items, long stableId) {
+		int position = mStableIds.get(stableId, -1);
+		if (position >= 0 && position < mValidCount && items.get(position).getStableId() == stableId)
+			return position;
+		return -1;
+	}
+
+	private void extend(List<? extends IFlexible> items) {
+		int size = items.size();
+		//Stale entries of removed items accumulate, drop them when they become too many
+		if (mPositions.size() > (size << 1) + 16) clear();
+		for (int i = mValidCount; i < size; i++) {
+			IFlexible item = items.get(i);
+			Integer existing = mPositions.get(item);
+			//Keep a previous occurrence, overwrite a stale entry
+			if (existing == null || existing >= i || !item.equals(items.get(existing)))
+				mPositions.put(item, i);
+		}
+		mValidCount = size;
+	}
+
+	private void extendStableIds(List<? extends IFlexible> items) {
+		int size = items.size();
+		if (mStableIds.size() > (size << 1) + 16) clear();
+		for (int i = mValidCount; i < size; i++) {
+			long stableId = items.get(i).getStableId();
+			int existing = mStableIds.get(stableId, -1);
+			if (existing < 0 || existing >= i || items.get(existing).getStableId() != stableId)
+				mStableIds.put(stableId, i);
+		}
+		mValidCount = size;
+	}
+
+}
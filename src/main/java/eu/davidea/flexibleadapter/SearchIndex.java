@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import eu.davidea.flexibleadapter.items.IExpandable;
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.items.ISearchable;
+
+/**
+ * Inverted index of the n-grams (up to {@link #GRAM} characters) of the search tokens of the
+ * items and of their subItems.
+ * <p>Each indexed item has an id, assigned in increasing order, so the posting list of each
+ * n-gram is sorted and can be intersected with binary searches. A removed item leaves its id
+ * in the posting lists until the next compaction.</p>
+ * The index is maintained by the Adapter when items are added, loaded, updated and removed:
+ * each item is tokenized only once. Items not implementing {@link ISearchable} and items not
+ * indexed are always candidates, so an item missing from the index is scanned as usual.
+ * <p>Methods are synchronized because the query may run on the filter Executor.</p>
+ */
+class SearchIndex<T extends IFlexible> {
+
+	static final int GRAM = 3;
+
+	private final Map<String, Postings> mPostings = new HashMap<String, Postings>();
+	private final Map<T, Integer> mIds = new IdentityHashMap<T, Integer>();
+	private Object[] mItemsById = new Object[64];
+	private int mNextId = 0;
+
+	/**
+	 * Collects the candidates of the constraint among the unfiltered items.
+	 *
+	 * @param items             the unfiltered items
+	 * @param children          the subItems of the unfiltered items to inspect
+	 * @param constraint        the search text, in lower case
+	 * @param candidateChildren filled with the children that are candidates
+	 * @return the candidate items in the order of the unfiltered list, including the parents
+	 * of the candidate children
+	 */
+	synchronized List<T> query(List<T> items, Map<T, List<T>> children, String constraint,
+							   Set<T> candidateChildren) {
+		Set<T> matched = match(constraint);
+		List<T> candidates = new ArrayList<T>();
+		for (T item : items) {
+			boolean candidate = isCandidate(item, matched);
+			List<T> subItems = children.get(item);
+			if (subItems != null) {
+				for (T subItem : subItems) {
+					if (isCandidate(subItem, matched)) {
+						candidateChildren.add(subItem);
+						candidate = true;
+					}
+				}
+			}
+			if (candidate) candidates.add(item);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Indexes the items and their subItems, if not indexed yet.
+	 *
+	 * @param items the items added to the Adapter
+	 */
+	synchronized void addAll(List<T> items) {
+		for (T item : items) add(item);
+	}
+
+	/**
+	 * Removes the items and their subItems from the index.
+	 *
+	 * @param items the items removed from the Adapter
+	 */
+	synchronized void removeAll(List<T> items) {
+		for (T item : items) remove(item);
+		compactIfNeeded();
+	}
+
+	/**
+	 * Keeps only the items and their subItems, indexing the new ones.
+	 *
+	 * @param items the new items of the Adapter
+	 */
+	synchronized void retainAll(List<T> items) {
+		Set<T> retained = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		for (T item : items) collect(item, retained);
+		for (T item : new ArrayList<T>(mIds.keySet())) {
+			if (!retained.contains(item)) unindex(item);
+		}
+		for (T item : retained) {
+			if (!mIds.containsKey(item)) index(item);
+		}
+		compactIfNeeded();
+	}
+
+	/**
+	 * Tokenizes again the item after its texts changed, or indexes it if new.
+	 *
+	 * @param item the updated item
+	 */
+	synchronized void update(T item) {
+		unindex(item);
+		index(item);
+		compactIfNeeded();
+	}
+
+	/*-----------------*/
+	/* PRIVATE METHODS */
+	/*-----------------*/
+
+	/**
+	 * @return the indexed items containing the constraint in one of their tokens
+	 */
+	@SuppressWarnings("unchecked")
+	private Set<T> match(String constraint) {
+		Set<T> matched = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		Postings[] lists;
+		if (constraint.length() <= GRAM) {
+			lists = new Postings[]{mPostings.get(constraint)};
+		} else {
+			lists = new Postings[constraint.length() - GRAM + 1];
+			for (int i = 0; i < lists.length; i++) {
+				lists[i] = mPostings.get(constraint.substring(i, i + GRAM));
+			}
+		}
+		if (Arrays.asList(lists).contains(null)) return matched;
+		//Intersection, starting from the shortest list
+		Arrays.sort(lists, new Comparator<Postings>() {
+			@Override
+			public int compare(Postings lhs, Postings rhs) {
+				return lhs.size - rhs.size;
+			}
+		});
+		Postings shortest = lists[0];
+		outer:
+		for (int i = 0; i < shortest.size; i++) {
+			int id = shortest.ids[i];
+			if (mItemsById[id] == null) continue;
+			for (int l = 1; l < lists.length; l++) {
+				if (Arrays.binarySearch(lists[l].ids, 0, lists[l].size, id) < 0) continue outer;
+			}
+			matched.add((T) mItemsById[id]);
+		}
+		return matched;
+	}
+
+	private boolean isCandidate(T item, Set<T> matched) {
+		return !mIds.containsKey(item) || matched.contains(item);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void collect(T item, Set<T> items) {
+		if (!items.add(item) || !(item instanceof IExpandable)) return;
+		List<T> subItems = ((IExpandable) item).getSubItems();
+		if (subItems != null) {
+			for (T subItem : subItems) collect(subItem, items);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void add(T item) {
+		if (!mIds.containsKey(item)) index(item);
+		if (!(item instanceof IExpandable)) return;
+		List<T> subItems = ((IExpandable) item).getSubItems();
+		if (subItems != null) {
+			for (T subItem : subItems) add(subItem);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void remove(T item) {
+		unindex(item);
+		if (!(item instanceof IExpandable)) return;
+		List<T> subItems = ((IExpandable) item).getSubItems();
+		if (subItems != null) {
+			for (T subItem : subItems) remove(subItem);
+		}
+	}
+
+	/**
+	 * Only the items exposing search tokens are indexed.
+	 */
+	private void index(T item) {
+		if (!(item instanceof ISearchable)) return;
+		int id = mNextId++;
+		if (id == mItemsById.length) {
+			mItemsById = Arrays.copyOf(mItemsById, id << 1);
+		}
+		mItemsById[id] = item;
+		mIds.put(item, id);
+		for (String gram : gramsOf((ISearchable) item)) {
+			Postings postings = mPostings.get(gram);
+			if (postings == null) {
+				postings = new Postings();
+				mPostings.put(gram, postings);
+			}
+			postings.add(id);
+		}
+	}
+
+	private void unindex(T item) {
+		Integer id = mIds.remove(item);
+		if (id != null) mItemsById[id] = null;
+	}
+
+	/**
+	 * Indexes again the items when there are too many dead ids in the posting lists.
+	 */
+	@SuppressWarnings("unchecked")
+	private void compactIfNeeded() {
+		if (mNextId <= 1024 || mNextId <= mIds.size() << 1) return;
+		Object[] items = mIds.keySet().toArray();
+		mPostings.clear();
+		mIds.clear();
+		Arrays.fill(mItemsById, null);
+		mNextId = 0;
+		for (Object item : items) index((T) item);
+	}
+
+	private static Set<String> gramsOf(ISearchable item) {
+		Set<String> grams = new HashSet<String>();
+		for (String token : item.getSearchTokens()) {
+			if (token == null) continue;
+			token = token.toLowerCase(Locale.getDefault());
+			for (int n = 1; n <= GRAM; n++) {
+				for (int i = 0; i + n <= token.length(); i++) {
+					grams.add(token.substring(i, i + n));
+				}
+			}
+		}
+		return grams;
+	}
+
+	/**
+	 * Growable and sorted array of ids.
+	 */
+	private static class Postings {
+		int[] ids = new int[4];
+		int size;
+
+		void add(int id) {
+			if (size == ids.length) ids = Arrays.copyOf(ids, size << 1);
+			ids[size++] = id;
+		}
+	}
+
+}
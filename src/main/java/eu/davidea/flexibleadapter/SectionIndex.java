@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.items.IHeader;
+
+/**
+ * Sorted table of the positions where a section starts, used by {@link FlexibleAdapter} to
+ * resolve the sticky header of a position with a binary search.
+ * <p>A section starts at a header item or at an item holding a different header than the
+ * previous section: the items without header belong to the previous section. Only the start
+ * of each section is stored, with the position of its header item when displayed.</p>
+ * As for {@link PositionIndex}, the entries below the <i>valid count</i> are always correct:
+ * a mutation only lowers the valid count and the table is extended on the next lookup, from
+ * the first changed position up to the requested position.
+ */
+class SectionIndex<T extends IFlexible> {
+
+	private int[] mStarts = new int[16];
+	private int[] mHeaderPositions = new int[16];
+	private IHeader[] mHeaders = new IHeader[16];
+	private int mSize = 0;
+	private int mValidCount = 0;
+
+	/**
+	 * Invalidates all the sections starting from the passed position.
+	 *
+	 * @param positionStart the first position that changed
+	 */
+	void invalidate(int positionStart) {
+		if (positionStart >= mValidCount) return;
+		mValidCount = Math.max(0, positionStart);
+		int size = floor(mValidCount - 1) + 1;
+		Arrays.fill(mHeaders, size, mSize, null);
+		mSize = size;
+	}
+
+	/**
+	 * @param adapter  the Adapter that recognizes the headers
+	 * @param items    the current list of the Adapter
+	 * @param position the position of an item
+	 * @return the header of the section containing the position, null if none
+	 */
+	IHeader getHeaderOn(FlexibleAdapter<T> adapter, List<T> items, int position) {
+		int index = findSection(adapter, items, position);
+		return index >= 0 ? mHeaders[index] : null;
+	}
+
+	/**
+	 * @param adapter  the Adapter that recognizes the headers
+	 * @param items    the current list of the Adapter
+	 * @param position the position of an item
+	 * @return the position of the header item of the section containing the position, -1 if
+	 * none or if the header item is not displayed in the section
+	 */
+	int getHeaderPositionOn(FlexibleAdapter<T> adapter, List<T> items, int position) {
+		int index = findSection(adapter, items, position);
+		return index >= 0 ? mHeaderPositions[index] : -1;
+	}
+
+	/*-----------------*/
+	/* PRIVATE METHODS */
+	/*-----------------*/
+
+	private int findSection(FlexibleAdapter<T> adapter, List<T> items, int position) {
+		if (position < 0) return -1;
+		if (position >= mValidCount) extend(adapter, items, Math.min(position + 1, items.size()));
+		return floor(position);
+	}
+
+	private void extend(FlexibleAdapter<T> adapter, List<T> items, int count) {
+		for (int i = mValidCount; i < count; i++) {
+			T item = items.get(i);
+			if (adapter.isHeader(item)) {
+				add(i, (IHeader) item, i);
+			} else {
+				IHeader header = adapter.getHeaderOf(item);
+				if (header != null && (mSize == 0 || mHeaders[mSize - 1] != header))
+					add(i, header, -1);
+			}
+		}
+		mValidCount = Math.max(mValidCount, count);
+	}
+
+	private void add(int start, IHeader header, int headerPosition) {
+		if (mSize == mStarts.length) {
+			mStarts = Arrays.copyOf(mStarts, mSize << 1);
+			mHeaderPositions = Arrays.copyOf(mHeaderPositions, mSize << 1);
+			mHeaders = Arrays.copyOf(mHeaders, mSize << 1);
+		}
+		mStarts[mSize] = start;
+		mHeaderPositions[mSize] = headerPosition;
+		mHeaders[mSize++] = header;
+	}
+
+	/**
+	 * @return the index of the last section starting at or before the position, -1 if none
+	 */
+	private int floor(int position) {
+		int low = 0, high = mSize - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (mStarts[mid] <= position) low = mid + 1;
+			else high = mid - 1;
+		}
+		return high;
+	}
+
+}
@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import eu.davidea.fastscroller.FastScroller;
+import eu.davidea.flexibleadapter.common.ScrollCoordinator;
 import eu.davidea.flexibleadapter.utils.Utils;
 import eu.davidea.viewholders.FlexibleViewHolder;
 
@@ -80,6 +81,7 @@ public abstract class SelectableAdapter extends RecyclerView.Adapter
 	private ArrayList<Integer> mSelectedPositions;
 	private int mMode;
 	protected RecyclerView mRecyclerView;
+	protected ScrollCoordinator mScrollCoordinator;
 	protected FastScroller mFastScroller;
 
 	/**
@@ -125,6 +127,7 @@ public abstract class SelectableAdapter extends RecyclerView.Adapter
 	public void onAttachedToRecyclerView(RecyclerView recyclerView) {
 		super.onAttachedToRecyclerView(recyclerView);
 		mRecyclerView = recyclerView;
+		mScrollCoordinator = ScrollCoordinator.of(recyclerView);
 	}
 
 	/**
@@ -290,7 +293,13 @@ public abstract class SelectableAdapter extends RecyclerView.Adapter
 		handleSelection(positionStart, itemCount);
 	}
 
-	private void handleSelection(int positionStart, int itemCount) {
+	/**
+	 * Notifies the change of the selection status of a range of items.
+	 *
+	 * @param positionStart the first position changed
+	 * @param itemCount     the number of items changed
+	 */
+	protected void handleSelection(int positionStart, int itemCount) {
 		if (itemCount > 0) notifyItemRangeChanged(positionStart, itemCount);
 	}
 
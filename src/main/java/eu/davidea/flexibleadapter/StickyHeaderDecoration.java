@@ -19,102 +19,133 @@ package eu.davidea.flexibleadapter;
 import android.graphics.Canvas;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import eu.davidea.flexibleadapter.items.IHeader;
 
 /**
  * A sticky header decoration for RecyclerView, to use only with {@link FlexibleAdapter}.
+ * <p>The header views are kept in a cache keyed by header instance, ordered by access: when
+ * full, the least recently drawn header is evicted. The modifications of the list drop only
+ * the headers that were removed, moved or changed, the others keep their view.</p>
+ * The ViewHolders of the dropped headers are kept in a small pool for each view type: a new
+ * header is bound to a pooled ViewHolder, instead of inflating a new layout, and measured
+ * again only if the width of the RecyclerView changed or the binding requested a layout.
  */
-class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+	private static final int MAX_POOLED_HEADERS = 2;
 
 	private FlexibleAdapter mAdapter;
-	private Map<Object, View> mHeaderCache;
+	private final Map<IHeader, CachedHeader> mHeaderCache = new IdentityHashMap<IHeader, CachedHeader>();
+	//Most and least recently used headers
+	private CachedHeader mHead, mTail;
 	private int maxCachedHeaders;
+	private int mHits = 0, mMisses = 0;
+	//ViewHolders of the dropped headers, by view type
+	private final SparseArray<List<CachedHeader>> mPool = new SparseArray<List<CachedHeader>>();
+	//Headers bound and ViewHolders created during the current draw
+	private int mBoundHeaders, mCreatedHolders;
+	private OnDrawListener mDrawListener;
 
 	/**
 	 * @param adapter the sticky header adapter to use
 	 */
-	public StickyHeaderDecoration(FlexibleAdapter adapter, int maxCachedHeaders) {
+	StickyHeaderDecoration(FlexibleAdapter adapter, int maxCachedHeaders) {
 		mAdapter = adapter;
-		mHeaderCache = new HashMap<Object, View>();
-		this.maxCachedHeaders = maxCachedHeaders;
+		//The current and the next sticky headers are drawn together: never reuse one for the other
+		this.maxCachedHeaders = Math.max(2, maxCachedHeaders);
 	}
 
 	/**
 	 * Gets the header view for the associated position. If it doesn't exist yet, it will be
-	 * created, measured, and laid out.
+	 * bound to a pooled or new ViewHolder, measured, and laid out.
 	 *
 	 * @param recyclerView the RecyclerView
+	 * @param key          the sticky header of the position
 	 * @param position     the adapter position to get the header view for
 	 * @return Header view or null if the associated position and previous has no header
 	 */
-	private View getHeader(RecyclerView recyclerView, int position) {
-		final IHeader key = mAdapter.getHeaderStickyOn(position);
-
-		if (key != null && mHeaderCache.containsKey(key)) {
-			Log.v("getHeader", "Returning existing Header " + key);
-			return mHeaderCache.get(key);
-		} else if (key == null) {
-			Log.v("getHeader", "No Header");
-			return null;
+	private View getHeader(RecyclerView recyclerView, IHeader key, int position) {
+		if (key == null) return null;
+		CachedHeader cached = mHeaderCache.get(key);
+
+		if (cached != null) {
+			mHits++;
+			moveToHead(cached);
+			if (cached.width != recyclerView.getWidth()) measure(recyclerView, cached);
+			return cached.holder.itemView;
 		} else {
-			int headerPosition = mAdapter.getGlobalPositionOf(key);
+			int headerPosition = mAdapter.getHeaderStickyPositionOn(position);
+			if (headerPosition < 0) headerPosition = mAdapter.getGlobalPositionOf(key);
 			if (headerPosition < 0) return null;
 
-			final RecyclerView.ViewHolder holder = mAdapter.onCreateViewHolder(recyclerView, mAdapter.getItemViewType(headerPosition));
-			final View header = holder.itemView;
-			mAdapter.onBindViewHolder(holder, headerPosition);
-
-			int widthSpec = View.MeasureSpec.makeMeasureSpec(recyclerView.getWidth(), View.MeasureSpec.EXACTLY);
-			int heightSpec = View.MeasureSpec.makeMeasureSpec(recyclerView.getHeight(), View.MeasureSpec.UNSPECIFIED);
-
-			int childWidth = ViewGroup.getChildMeasureSpec(widthSpec,
-					recyclerView.getPaddingLeft() + recyclerView.getPaddingRight(), header.getLayoutParams().width);
-			int childHeight = ViewGroup.getChildMeasureSpec(heightSpec,
-					recyclerView.getPaddingTop() + recyclerView.getPaddingBottom(), header.getLayoutParams().height);
-
-			header.measure(childWidth, childHeight);
-			header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+			//Evict first, the ViewHolder can be reused
+			mMisses++;
+			mBoundHeaders++;
+			if (mHeaderCache.size() == maxCachedHeaders) remove(mTail);
+			int viewType = mAdapter.getItemViewType(headerPosition);
+			cached = obtain(viewType);
+			if (cached == null) {
+				mCreatedHolders++;
+				cached = new CachedHeader(mAdapter.onCreateViewHolder(recyclerView, viewType), viewType);
+			}
+			cached.header = key;
+			cached.position = headerPosition;
+			mAdapter.onBindViewHolder(cached.holder, headerPosition);
 
 			//TODO: Intercept taps on sticky views
-			//TODO: How many headers can be retained into the cache? Can we automatically remove invisible headers?
-			if (mHeaderCache.keySet().size() == maxCachedHeaders)
-				clearHeadersCache();
-			mHeaderCache.put(key, header);
-			Log.v("getHeader", "Returning new Header " + key + " headerCache>>>" + mHeaderCache.keySet());
-			return header;
+			if (cached.width != recyclerView.getWidth() || cached.holder.itemView.isLayoutRequested())
+				measure(recyclerView, cached);
+			mHeaderCache.put(key, cached);
+			moveToHead(cached);
+			if (FlexibleAdapter.DEBUG)
+				Log.v("getHeader", "Returning new Header " + key + " hits=" + mHits + " misses=" + mMisses);
+			return cached.holder.itemView;
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Draws the sticky header of the first visible item. The adapter positions and the headers
+	 * of the first two children are resolved once: when all the headers are cached, nothing
+	 * is allocated.
+	 * <p>{@inheritDoc}</p>
 	 */
 	@Override
 	public void onDrawOver(Canvas canvas, RecyclerView recyclerView, RecyclerView.State state) {
 		//Not needed, handled by FlexibleAdapter (this decorator is removed if no sticky headers!):
 		// if (!mAdapter.areHeadersShown() && !mAdapter.areHeadersSticky()) return;
+		long startTime = mDrawListener != null ? System.nanoTime() : 0L;
+		mBoundHeaders = mCreatedHolders = 0;
 
 		//Get or create the headerView for top position (index = 0)
-		if (recyclerView.getChildCount() < 0) return;
-		View child = recyclerView.getChildAt(0);
-		int adapterPos = recyclerView.getChildAdapterPosition(child);
-		View headerView = getHeader(recyclerView, adapterPos);
-		//A header is found?
-		if (headerView != null) {
-			int top = getHeaderTop(recyclerView, child, adapterPos);
-			Log.v("onDrawOver", "adapterPos=" + adapterPos + " top=" + top);
-			//Draw header!
-			int left = child.getLeft();
-			canvas.save();
-			canvas.translate(left, top);
-			headerView.draw(canvas);
-			canvas.restore();
+		if (recyclerView.getChildCount() > 0) {
+			View child = recyclerView.getChildAt(0);
+			int adapterPos = recyclerView.getChildAdapterPosition(child);
+			IHeader current = adapterPos != RecyclerView.NO_POSITION ? mAdapter.getHeaderStickyOn(adapterPos) : null;
+			View headerView = getHeader(recyclerView, current, adapterPos);
+			//A header is found?
+			if (headerView != null) {
+				int top = getHeaderTop(recyclerView, child, current);
+				if (FlexibleAdapter.DEBUG)
+					Log.v("onDrawOver", "adapterPos=" + adapterPos + " top=" + top);
+				//Draw header!
+				int left = child.getLeft();
+				canvas.save();
+				canvas.translate(left, top);
+				headerView.draw(canvas);
+				canvas.restore();
+			}
 		}
+		if (mDrawListener != null)
+			mDrawListener.onStickyHeaderDrawn(System.nanoTime() - startTime, mBoundHeaders, mCreatedHolders);
 	}
 
 	/**
@@ -122,22 +153,21 @@ class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
 	 *
 	 * @param recyclerView the RecyclerView
 	 * @param child        the current child item view
-	 * @param adapterPos   the current Adapter position
+	 * @param current      the sticky header of the current child item
 	 * @return the new top (usually 0) of the header view, or the offset if next header pushes the previous offscreen
 	 */
-	private int getHeaderTop(RecyclerView recyclerView, View child, int adapterPos) {
+	private int getHeaderTop(RecyclerView recyclerView, View child, IHeader current) {
 		int top = Math.max(0, (int) child.getY());
-		IHeader current = mAdapter.getHeaderStickyOn(adapterPos);
-		if (current == null) return top;
 
 		//Get next(+1) view with header and compute the offscreen push if needed
-		if (recyclerView.getChildCount() < 1) return top;
+		if (recyclerView.getChildCount() < 2) return top;
 		View nextItemView = recyclerView.getChildAt(1);
 		int adapterPosHere = recyclerView.getChildAdapterPosition(nextItemView);
+		if (adapterPosHere == RecyclerView.NO_POSITION) return top;
 		IHeader next = mAdapter.getHeaderStickyOn(adapterPosHere);
 
 		if (next != null && !next.equals(current)) {
-			View nextHeaderView = getHeader(recyclerView, adapterPosHere);
+			View nextHeaderView = getHeader(recyclerView, next, adapterPosHere);
 			if (nextHeaderView == null) return top;
 
 			int offset = (int) nextItemView.getY() - nextHeaderView.getHeight();
@@ -148,12 +178,180 @@ class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
 		return top;
 	}
 
+	/**
+	 * Sets the listener notified at the end of each draw of the sticky header.
+	 *
+	 * @param listener the listener, null to remove it
+	 */
+	public void setOnDrawListener(OnDrawListener listener) {
+		mDrawListener = listener;
+	}
+
 	/**
 	 * Clears the header view cache. Headers will be recreated and
 	 * rebound on list scroll after this method has been called.
 	 */
 	public void clearHeadersCache() {
-		mHeaderCache.clear();
+		while (mTail != null) remove(mTail);
+	}
+
+	/**
+	 * @return how many times a header view was taken from the cache
+	 */
+	public int getCacheHitCount() {
+		return mHits;
+	}
+
+	/**
+	 * @return how many times a header was not in cache and was bound to a pooled or new
+	 * ViewHolder
+	 */
+	public int getCacheMissCount() {
+		return mMisses;
+	}
+
+	/*---------------*/
+	/* DRAW LISTENER */
+	/*---------------*/
+
+	/**
+	 * Listener of the draw of the sticky header, to monitor the cost of each frame.
+	 * <p>When all the headers are cached, no header is bound and no ViewHolder is created: the
+	 * draw allocates nothing.</p>
+	 */
+	public interface OnDrawListener {
+		/**
+		 * Called on the main thread at the end of each {@code onDrawOver}.
+		 *
+		 * @param drawTimeNanos  the time spent drawing the sticky header, in nanoseconds
+		 * @param boundHeaders   the headers bound in this frame, because not in cache
+		 * @param createdHolders the ViewHolders created in this frame, because not in pool
+		 */
+		void onStickyHeaderDrawn(long drawTimeNanos, int boundHeaders, int createdHolders);
+	}
+
+	/*-----------------------*/
+	/* TARGETED INVALIDATION */
+	/*-----------------------*/
+
+	/**
+	 * Shifts the cached headers after the inserted range.
+	 */
+	void onItemRangeInserted(int positionStart, int itemCount) {
+		for (CachedHeader cached = mHead; cached != null; cached = cached.next) {
+			if (cached.position >= positionStart) cached.position += itemCount;
+		}
+	}
+
+	/**
+	 * Drops the cached headers in the removed range and shifts the following ones.
+	 */
+	void onItemRangeRemoved(int positionStart, int itemCount) {
+		for (CachedHeader cached = mHead; cached != null; ) {
+			CachedHeader next = cached.next;
+			if (cached.position >= positionStart + itemCount) cached.position -= itemCount;
+			else if (cached.position >= positionStart) remove(cached);
+			cached = next;
+		}
+	}
+
+	/**
+	 * Drops the cached headers in the changed range, their content may be different.
+	 */
+	void onItemRangeChanged(int positionStart, int itemCount) {
+		for (CachedHeader cached = mHead; cached != null; ) {
+			CachedHeader next = cached.next;
+			if (cached.position >= positionStart && cached.position < positionStart + itemCount)
+				remove(cached);
+			cached = next;
+		}
+	}
+
+	/**
+	 * Drops the moved header and shifts the headers between the two positions.
+	 */
+	void onItemMoved(int fromPosition, int toPosition) {
+		for (CachedHeader cached = mHead; cached != null; ) {
+			CachedHeader next = cached.next;
+			if (cached.position == fromPosition) remove(cached);
+			else if (fromPosition < toPosition && cached.position > fromPosition && cached.position <= toPosition)
+				cached.position--;
+			else if (fromPosition > toPosition && cached.position >= toPosition && cached.position < fromPosition)
+				cached.position++;
+			cached = next;
+		}
+	}
+
+	/*-----------------*/
+	/* PRIVATE METHODS */
+	/*-----------------*/
+
+	private void moveToHead(CachedHeader cached) {
+		if (cached == mHead) return;
+		unlink(cached);
+		cached.next = mHead;
+		if (mHead != null) mHead.previous = cached;
+		mHead = cached;
+		if (mTail == null) mTail = cached;
+	}
+
+	private void remove(CachedHeader cached) {
+		unlink(cached);
+		mHeaderCache.remove(cached.header);
+		cached.header = null;
+		List<CachedHeader> pool = mPool.get(cached.viewType);
+		if (pool == null) {
+			pool = new ArrayList<CachedHeader>(MAX_POOLED_HEADERS);
+			mPool.put(cached.viewType, pool);
+		}
+		if (pool.size() < MAX_POOLED_HEADERS) pool.add(cached);
+	}
+
+	private CachedHeader obtain(int viewType) {
+		List<CachedHeader> pool = mPool.get(viewType);
+		return pool != null && !pool.isEmpty() ? pool.remove(pool.size() - 1) : null;
+	}
+
+	private void measure(RecyclerView recyclerView, CachedHeader cached) {
+		View header = cached.holder.itemView;
+		int widthSpec = View.MeasureSpec.makeMeasureSpec(recyclerView.getWidth(), View.MeasureSpec.EXACTLY);
+		int heightSpec = View.MeasureSpec.makeMeasureSpec(recyclerView.getHeight(), View.MeasureSpec.UNSPECIFIED);
+
+		int childWidth = ViewGroup.getChildMeasureSpec(widthSpec,
+				recyclerView.getPaddingLeft() + recyclerView.getPaddingRight(), header.getLayoutParams().width);
+		int childHeight = ViewGroup.getChildMeasureSpec(heightSpec,
+				recyclerView.getPaddingTop() + recyclerView.getPaddingBottom(), header.getLayoutParams().height);
+
+		header.measure(childWidth, childHeight);
+		header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+		cached.width = recyclerView.getWidth();
+	}
+
+	private void unlink(CachedHeader cached) {
+		if (cached.previous != null) cached.previous.next = cached.next;
+		else if (mHead == cached) mHead = cached.next;
+		if (cached.next != null) cached.next.previous = cached.previous;
+		else if (mTail == cached) mTail = cached.previous;
+		cached.previous = cached.next = null;
+	}
+
+	/**
+	 * Header ViewHolder with the position where it was bound and the width it was measured for.
+	 * <p>When the header is dropped, the instance is pooled with its ViewHolder.</p>
+	 */
+	private static class CachedHeader {
+		final RecyclerView.ViewHolder holder;
+		final int viewType;
+		IHeader header;
+		int position;
+		//Width of the RecyclerView at the last measure, -1 if never measured
+		int width = -1;
+		CachedHeader previous, next;
+
+		CachedHeader(RecyclerView.ViewHolder holder, int viewType) {
+			this.holder = holder;
+			this.viewType = viewType;
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.common;
+
+import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Visible range and scroll requests of a RecyclerView, for any LayoutManager: Linear, Grid
+ * and StaggeredGrid layouts are asked directly, the others are measured from their child views.
+ * <p>The visible range is computed at most once per frame, at the first request after a scroll
+ * or a new frame. Scroll requests are coalesced: only the last one is performed, once the
+ * pending adapter updates are laid out.</p>
+ * One instance is shared by all the components of the same RecyclerView.
+ * <p>This class must be used from the main thread.</p>
+ */
+public class ScrollCoordinator {
+
+	private static final Map<RecyclerView, ScrollCoordinator> sCoordinators =
+			new WeakHashMap<RecyclerView, ScrollCoordinator>();
+
+	private final WeakReference<RecyclerView> mRecyclerView;
+	private int mFirstVisible = RecyclerView.NO_POSITION, mLastVisible = RecyclerView.NO_POSITION;
+	private boolean rangeValid = false;
+	//Reused by the StaggeredGridLayoutManager for the position of each span
+	private int[] mSpanPositions;
+
+	//The last scroll request, performed after the layout pass
+	private int mScrollPosition = RecyclerView.NO_POSITION, mScrollItemCount;
+	private boolean scrollPosted = false;
+
+	private final Runnable mScrollRunnable = new Runnable() {
+		@Override
+		public void run() {
+			RecyclerView recyclerView = mRecyclerView.get();
+			if (recyclerView == null || mScrollPosition == RecyclerView.NO_POSITION) {
+				scrollPosted = false;
+				return;
+			}
+			//Positions are valid only when the adapter updates are laid out
+			if (recyclerView.hasPendingAdapterUpdates() || recyclerView.isComputingLayout()
+					|| recyclerView.isLayoutRequested()) {
+				ViewCompat.postOnAnimation(recyclerView, this);
+				return;
+			}
+			scrollPosted = false;
+			int position = mScrollPosition;
+			mScrollPosition = RecyclerView.NO_POSITION;
+			scrollToShow(recyclerView, position, mScrollItemCount);
+		}
+	};
+
+	//A new frame invalidates the visible range
+	private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			rangeValid = false;
+			return true;
+		}
+	};
+
+	private ScrollCoordinator(RecyclerView recyclerView) {
+		mRecyclerView = new WeakReference<RecyclerView>(recyclerView);
+		recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+				//Also dispatched after a layout pass that changed the visible children
+				rangeValid = false;
+			}
+		});
+		//The observer changes with the window
+		if (ViewCompat.isAttachedToWindow(recyclerView))
+			recyclerView.getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+		recyclerView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+			@Override
+			public void onViewAttachedToWindow(View view) {
+				view.getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+			}
+
+			@Override
+			public void onViewDetachedFromWindow(View view) {
+				view.getViewTreeObserver().removeOnPreDrawListener(mPreDrawListener);
+			}
+		});
+	}
+
+	/**
+	 * @param recyclerView the RecyclerView to coordinate
+	 * @return the instance shared by the components of the RecyclerView
+	 */
+	public static ScrollCoordinator of(@NonNull RecyclerView recyclerView) {
+		ScrollCoordinator coordinator = sCoordinators.get(recyclerView);
+		if (coordinator == null) {
+			coordinator = new ScrollCoordinator(recyclerView);
+			sCoordinators.put(recyclerView, coordinator);
+		}
+		return coordinator;
+	}
+
+	/**
+	 * @return the adapter position of the first completely visible item, or
+	 * {@link RecyclerView#NO_POSITION} if none
+	 */
+	public int getFirstCompletelyVisiblePosition() {
+		computeVisibleRange();
+		return mFirstVisible;
+	}
+
+	/**
+	 * @return the adapter position of the last completely visible item, or
+	 * {@link RecyclerView#NO_POSITION} if none
+	 */
+	public int getLastCompletelyVisiblePosition() {
+		computeVisibleRange();
+		return mLastVisible;
+	}
+
+	/**
+	 * @return the number of columns (or rows) of a grid, 1 for the other layouts
+	 */
+	public int getSpanCount() {
+		RecyclerView.LayoutManager layoutManager = getLayoutManager();
+		if (layoutManager instanceof GridLayoutManager)
+			return ((GridLayoutManager) layoutManager).getSpanCount();
+		if (layoutManager instanceof StaggeredGridLayoutManager)
+			return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+		return 1;
+	}
+
+	/**
+	 * Scrolls immediately to the position, placing it at the top (or left) of the list with the
+	 * given offset, when the LayoutManager supports it.
+	 *
+	 * @param position the adapter position to show
+	 * @param offset   the distance in pixels from the start edge
+	 */
+	public void scrollToPositionWithOffset(int position, int offset) {
+		RecyclerView.LayoutManager layoutManager = getLayoutManager();
+		if (layoutManager instanceof LinearLayoutManager) {
+			((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+		} else if (layoutManager instanceof StaggeredGridLayoutManager) {
+			((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+		} else if (layoutManager != null) {
+			layoutManager.scrollToPosition(position);
+		}
+	}
+
+	/**
+	 * Smoothly scrolls the list to show as many items as possible of the range, without hiding
+	 * the first one.
+	 * <p>The scroll is performed when the pending adapter updates are laid out: requests
+	 * received in the meantime replace the previous one.</p>
+	 *
+	 * @param position  the adapter position of the first item of the range
+	 * @param itemCount the number of items that follow the first one
+	 */
+	public void requestScrollToShow(int position, int itemCount) {
+		RecyclerView recyclerView = mRecyclerView.get();
+		if (recyclerView == null) return;
+		mScrollPosition = position;
+		mScrollItemCount = itemCount;
+		if (!scrollPosted) {
+			scrollPosted = true;
+			ViewCompat.postOnAnimation(recyclerView, mScrollRunnable);
+		}
+	}
+
+	/**
+	 * Cancels the pending scroll request, if any.
+	 */
+	public void cancelScrollRequest() {
+		mScrollPosition = RecyclerView.NO_POSITION;
+	}
+
+	/*-----------------*/
+	/* PRIVATE METHODS */
+	/*-----------------*/
+
+	private RecyclerView.LayoutManager getLayoutManager() {
+		RecyclerView recyclerView = mRecyclerView.get();
+		return recyclerView != null ? recyclerView.getLayoutManager() : null;
+	}
+
+	private void scrollToShow(RecyclerView recyclerView, int position, int itemCount) {
+		int firstVisible = getFirstCompletelyVisiblePosition();
+		int lastVisible = getLastCompletelyVisiblePosition();
+		if (firstVisible == RecyclerView.NO_POSITION) return;
+		int itemsToShow = position + itemCount - lastVisible;
+		if (itemsToShow > 0) {
+			int scrollMax = position - firstVisible;
+			int scrollBy = Math.min(scrollMax, itemsToShow);
+			recyclerView.smoothScrollToPosition(firstVisible + scrollBy);
+		} else if (position < firstVisible) {
+			recyclerView.smoothScrollToPosition(position);
+		}
+	}
+
+	private void computeVisibleRange() {
+		if (rangeValid) return;
+		mFirstVisible = mLastVisible = RecyclerView.NO_POSITION;
+		RecyclerView recyclerView = mRecyclerView.get();
+		RecyclerView.LayoutManager layoutManager = recyclerView != null ? recyclerView.getLayoutManager() : null;
+		if (layoutManager instanceof LinearLayoutManager) {
+			LinearLayoutManager linear = (LinearLayoutManager) layoutManager;
+			mFirstVisible = linear.findFirstCompletelyVisibleItemPosition();
+			mLastVisible = linear.findLastCompletelyVisibleItemPosition();
+		} else if (layoutManager instanceof StaggeredGridLayoutManager) {
+			StaggeredGridLayoutManager staggered = (StaggeredGridLayoutManager) layoutManager;
+			if (mSpanPositions == null || mSpanPositions.length != staggered.getSpanCount())
+				mSpanPositions = new int[staggered.getSpanCount()];
+			mFirstVisible = min(staggered.findFirstCompletelyVisibleItemPositions(mSpanPositions));
+			mLastVisible = max(staggered.findLastCompletelyVisibleItemPositions(mSpanPositions));
+		} else if (layoutManager != null) {
+			//Completely visible children of any other LayoutManager
+			for (int i = 0; i < layoutManager.getChildCount(); i++) {
+				View child = layoutManager.getChildAt(i);
+				int position = recyclerView.getChildAdapterPosition(child);
+				if (position == RecyclerView.NO_POSITION || !isCompletelyVisible(recyclerView, layoutManager, child))
+					continue;
+				if (mFirstVisible == RecyclerView.NO_POSITION || position < mFirstVisible)
+					mFirstVisible = position;
+				if (position > mLastVisible) mLastVisible = position;
+			}
+		}
+		rangeValid = true;
+	}
+
+	private static boolean isCompletelyVisible(RecyclerView recyclerView,
+											   RecyclerView.LayoutManager layoutManager, View child) {
+		return layoutManager.getDecoratedLeft(child) >= recyclerView.getPaddingLeft()
+				&& layoutManager.getDecoratedTop(child) >= recyclerView.getPaddingTop()
+				&& layoutManager.getDecoratedRight(child) <= recyclerView.getWidth() - recyclerView.getPaddingRight()
+				&& layoutManager.getDecoratedBottom(child) <= recyclerView.getHeight() - recyclerView.getPaddingBottom();
+	}
+
+	private static int min(int[] positions) {
+		int min = RecyclerView.NO_POSITION;
+		for (int position : positions) {
+			if (position != RecyclerView.NO_POSITION && (min == RecyclerView.NO_POSITION || position < min))
+				min = position;
+		}
+		return min;
+	}
+
+	private static int max(int[] positions) {
+		int max = RecyclerView.NO_POSITION;
+		for (int position : positions) {
+			if (position > max) max = position;
+		}
+		return max;
+	}
+
+}
@@ -30,13 +30,14 @@ import java.util.List;
  */
 public abstract class AbstractExpandableItem<VH extends RecyclerView.ViewHolder, S extends IFlexible>
 		extends AbstractFlexibleItem<VH>
-		implements IExpandable<VH, S> {
+		implements IVersionedExpandable<VH, S> {
 
 	/* Flags for FlexibleAdapter */
 	private boolean mExpanded = false;
 
 	/* subItems list */
 	private List<S> mSubItems;
+	private int mSubItemsVersion = 0;
 
 	/*--------------------*/
 	/* EXPANDABLE METHODS */
@@ -67,9 +68,23 @@ public abstract class AbstractExpandableItem<VH extends RecyclerView.ViewHolder,
 
 	public IFlexible setSubItems(List<S> subItem) {
 		mSubItems = new ArrayList<>(subItem);
+		mSubItemsVersion++;
 		return this;
 	}
 
+	@Override
+	public final int getSubItemsVersion() {
+		return mSubItemsVersion;
+	}
+
+	/**
+	 * Call this method after modifying the list of subItems directly, or after changing their
+	 * hidden flag outside the Adapter.
+	 */
+	public void notifySubItemsChanged() {
+		mSubItemsVersion++;
+	}
+
 	public final int getSubItemsCount() {
 		return mSubItems != null ? mSubItems.size() : 0;
 	}
@@ -89,11 +104,13 @@ public abstract class AbstractExpandableItem<VH extends RecyclerView.ViewHolder,
 		if (mSubItems == null)
 			mSubItems = new ArrayList<S>();
 		mSubItems.add(subItem);
+		mSubItemsVersion++;
 	}
 
 	public void addSubItem(int position, S subItem) {
 		if (mSubItems != null && position >= 0 && position < mSubItems.size()) {
 			mSubItems.add(position, subItem);
+			mSubItemsVersion++;
 		} else
 			addSubItem(subItem);
 	}
@@ -103,12 +120,17 @@ public abstract class AbstractExpandableItem<VH extends RecyclerView.ViewHolder,
 	}
 
 	public boolean removeSubItem(S item) {
-		return item != null && mSubItems.remove(item);
+		if (item != null && mSubItems.remove(item)) {
+			mSubItemsVersion++;
+			return true;
+		}
+		return false;
 	}
 
 	public boolean removeSubItem(int position) {
 		if (mSubItems != null && position >= 0 && position < mSubItems.size()) {
 			mSubItems.remove(position);
+			mSubItemsVersion++;
 			return true;
 		}
 		return false;
@@ -52,6 +52,18 @@ public abstract class AbstractFlexibleItem<VH extends RecyclerView.ViewHolder>
 	@Override
 	public abstract boolean equals(Object o);
 
+	/**
+	 * By default the stable id is the {@code hashCode()} of this item.
+	 * <p>Override this method to return the identifier of your model, if {@code hashCode()}
+	 * is not implemented or it is not unique.</p>
+	 *
+	 * @return the stable identifier of this item
+	 */
+	@Override
+	public long getStableId() {
+		return hashCode();
+	}
+
 	@Override
 	public boolean isEnabled() {
 		return mEnabled;
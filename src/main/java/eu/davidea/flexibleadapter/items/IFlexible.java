@@ -66,6 +66,21 @@ public interface IFlexible<VH extends RecyclerView.ViewHolder> {
 	 */
 	void setHidden(boolean hidden);
 
+	/**
+	 * Returns the stable identifier of this item, used by the Adapter when stable ids are
+	 * enabled.
+	 * <p>The identifier must be unique in the Adapter and must not change for the lifetime of
+	 * the represented data: a new instance of the same model must return the same value.
+	 * This lets the RecyclerView reuse the ViewHolders after a full refresh.</p>
+	 * <b>NOTE:</b> This method is new in the interface: the items not extending
+	 * {@link AbstractFlexibleItem} must implement it, returning {@code hashCode()} keeps the
+	 * same behaviour of {@code AbstractFlexibleItem}.
+	 *
+	 * @return the stable identifier of this item
+	 * @see FlexibleAdapter#FlexibleAdapter(List, Object, boolean)
+	 */
+	long getStableId();
+
 	/*--------------------*/
 	/* SELECTABLE METHODS */
 	/*--------------------*/
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.items;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Expandable item whose subItems are loaded only when it is expanded the first time.
+ * <p>The Adapter displays a loading item and asks its
+ * {@link eu.davidea.flexibleadapter.FlexibleAdapter.SubItemsLoader} for the subItems.
+ * When they arrive, they are set with {@link #setLoadedSubItems(List)} and displayed.</p>
+ * The subItems of the collapsed items that were not expanded recently can be released by the
+ * Adapter, setting them to {@code null}: they will be loaded again on the next expansion.
+ *
+ * @see eu.davidea.flexibleadapter.FlexibleAdapter#setSubItemsLoader(eu.davidea.flexibleadapter.FlexibleAdapter.SubItemsLoader, java.util.concurrent.Executor)
+ */
+public interface ILazyExpandable<VH extends RecyclerView.ViewHolder, S extends IFlexible>
+		extends IExpandable<VH, S> {
+
+	/**
+	 * @return true if the subItems are available with {@link #getSubItems()}, false if they
+	 * must be loaded
+	 */
+	boolean isSubItemsLoaded();
+
+	/**
+	 * Called on the main thread when the subItems are loaded, or with {@code null} when they
+	 * are released.
+	 *
+	 * @param subItems the loaded subItems, null to release them
+	 */
+	void setLoadedSubItems(List<S> subItems);
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.items;
+
+/**
+ * A filterable item that also exposes the texts it is searched into, so the Adapter can
+ * collect the candidates of a search from an index, instead of calling
+ * {@link #filter(String)} on every item.
+ * <p>The filter is still called on the candidates to confirm the match.</p>
+ *
+ * @see eu.davidea.flexibleadapter.FlexibleAdapter#setSearchIndexEnabled(boolean)
+ */
+public interface ISearchable extends IFilterable {
+
+	/**
+	 * Returns the texts that {@link #filter(String)} compares with the constraint.
+	 * <p><b>NOTE:</b> An item is a candidate only if the constraint is contained in one of these
+	 * tokens (case insensitive), so the filter must not collect the item in other cases.
+	 * When the texts change, the item must be updated through the Adapter.</p>
+	 *
+	 * @return the search tokens of this item, never null
+	 */
+	String[] getSearchTokens();
+
+}
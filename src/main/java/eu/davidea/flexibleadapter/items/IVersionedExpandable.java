@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.items;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Expandable item that counts the modifications of its subItems, so the Adapter can keep the
+ * list of the subItems not hidden until the next modification.
+ * <p>{@link AbstractExpandableItem} already implements this interface.</p>
+ */
+public interface IVersionedExpandable<VH extends RecyclerView.ViewHolder, S extends IFlexible>
+		extends IExpandable<VH, S> {
+
+	/**
+	 * @return a number that changes each time a subItem is added or removed, or its hidden
+	 * flag is changed outside the Adapter
+	 */
+	int getSubItemsVersion();
+
+}
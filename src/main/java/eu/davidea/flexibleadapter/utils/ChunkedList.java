@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List made of fixed-size chunks, suitable as backing list of the Adapter for big expandable
+ * data sets.
+ * <p>Inserting or removing a range of {@code k} items in the middle of the list costs
+ * {@code O(chunkSize + k)} plus the shift of the chunk references, instead of shifting the
+ * whole tail as in {@code ArrayList}. Access by position costs {@code O(log(size/chunkSize))}.</p>
+ * Usage: {@code new FlexibleAdapter<T>(new ChunkedList<T>(items), listeners);}
+ * <p>Range removals are performed with {@code subList(from, to).clear()}.</p>
+ * This class is not thread safe.
+ */
+public class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+
+	public static final int DEFAULT_CHUNK_SIZE = 256;
+
+	private final int mChunkSize;
+	private final List<Chunk> mChunks = new ArrayList<Chunk>();
+	//Start position of each chunk, valid up to mValidOffsets
+	private int[] mOffsets = new int[16];
+	private int mValidOffsets = 0;
+	private int mSize = 0;
+
+	public ChunkedList() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param chunkSize the maximum number of items of each chunk, minimum 4
+	 */
+	public ChunkedList(int chunkSize) {
+		if (chunkSize < 4) throw new IllegalArgumentException("Chunk size must be at least 4");
+		mChunkSize = chunkSize;
+	}
+
+	/**
+	 * @param items the initial items
+	 */
+	public ChunkedList(Collection<? extends E> items) {
+		this(DEFAULT_CHUNK_SIZE);
+		addAll(items);
+	}
+
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int location) {
+		checkIndex(location, mSize);
+		int c = chunkOf(location);
+		return (E) mChunks.get(c).items[location - mOffsets[c]];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(int location, E object) {
+		checkIndex(location, mSize);
+		int c = chunkOf(location);
+		Object[] items = mChunks.get(c).items;
+		int local = location - mOffsets[c];
+		E previous = (E) items[local];
+		items[local] = object;
+		return previous;
+	}
+
+	@Override
+	public void add(int location, E object) {
+		checkIndex(location, mSize + 1);
+		if (location == mSize) {
+			Chunk last = mChunks.isEmpty() ? null : mChunks.get(mChunks.size() - 1);
+			if (last == null || last.size == mChunkSize) {
+				last = new Chunk();
+				mChunks.add(last);
+			}
+			last.items[last.size++] = object;
+		} else {
+			int c = chunkOf(location);
+			Chunk chunk = mChunks.get(c);
+			int local = location - mOffsets[c];
+			if (chunk.size == mChunkSize) {
+				//Split the full chunk in 2 halves
+				Chunk next = new Chunk();
+				int half = mChunkSize >> 1;
+				next.size = chunk.size - half;
+				System.arraycopy(chunk.items, half, next.items, 0, next.size);
+				Arrays.fill(chunk.items, half, chunk.size, null);
+				chunk.size = half;
+				mChunks.add(c + 1, next);
+				if (local > half) {
+					chunk = next;
+					local -= half;
+				}
+			}
+			System.arraycopy(chunk.items, local, chunk.items, local + 1, chunk.size - local);
+			chunk.items[local] = object;
+			chunk.size++;
+			invalidateOffsets(c);
+		}
+		mSize++;
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> collection) {
+		return addAll(mSize, collection);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean addAll(int location, Collection<? extends E> collection) {
+		checkIndex(location, mSize + 1);
+		Object[] array = collection.toArray();
+		if (array.length == 0) return false;
+		if (array.length == 1) {
+			add(location, (E) array[0]);
+			return true;
+		}
+		int c;
+		Object[] tail;
+		int tailSize;
+		List<Chunk> newChunks = new ArrayList<Chunk>();
+		if (location == mSize) {
+			c = mChunks.size();
+			tail = null;
+			tailSize = 0;
+			if (c > 0 && mChunks.get(c - 1).size < mChunkSize) {
+				//Complete the last chunk
+				newChunks.add(mChunks.get(--c));
+			}
+		} else {
+			//Cut the chunk at the insertion point, the tail is appended after the new items
+			c = chunkOf(location);
+			Chunk chunk = mChunks.get(c);
+			int local = location - mOffsets[c];
+			tailSize = chunk.size - local;
+			tail = new Object[tailSize];
+			System.arraycopy(chunk.items, local, tail, 0, tailSize);
+			Arrays.fill(chunk.items, local, chunk.size, null);
+			chunk.size = local;
+			newChunks.add(chunk);
+		}
+		fill(newChunks, array, array.length);
+		if (tail != null) fill(newChunks, tail, tailSize);
+		//Replace the cut chunk with the new sequence of chunks
+		if (c < mChunks.size()) mChunks.remove(c);
+		mChunks.addAll(c, newChunks);
+		invalidateOffsets(c);
+		mSize += array.length;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E remove(int location) {
+		checkIndex(location, mSize);
+		int c = chunkOf(location);
+		Chunk chunk = mChunks.get(c);
+		int local = location - mOffsets[c];
+		E removed = (E) chunk.items[local];
+		System.arraycopy(chunk.items, local + 1, chunk.items, local, chunk.size - local - 1);
+		chunk.items[--chunk.size] = null;
+		if (chunk.size == 0) {
+			mChunks.remove(c);
+		} else {
+			compact(c);
+		}
+		invalidateOffsets(c - 1);
+		mSize--;
+		modCount++;
+		return removed;
+	}
+
+	/**
+	 * Removes the items in the range in {@code O(chunkSize + number of chunks)}.
+	 * <p>Called by {@code subList(fromIndex, toIndex).clear()}.</p>
+	 */
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") size=" + mSize);
+		if (fromIndex == toIndex) return;
+		int first = chunkOf(fromIndex), last = chunkOf(toIndex - 1);
+		int localFrom = fromIndex - mOffsets[first], localTo = toIndex - mOffsets[last];
+		Chunk firstChunk = mChunks.get(first), lastChunk = mChunks.get(last);
+		if (first == last) {
+			System.arraycopy(firstChunk.items, localTo, firstChunk.items, localFrom, firstChunk.size - localTo);
+			int size = firstChunk.size - (localTo - localFrom);
+			Arrays.fill(firstChunk.items, size, firstChunk.size, null);
+			firstChunk.size = size;
+		} else {
+			//Cut the tail of the first chunk and the head of the last chunk
+			Arrays.fill(firstChunk.items, localFrom, firstChunk.size, null);
+			firstChunk.size = localFrom;
+			System.arraycopy(lastChunk.items, localTo, lastChunk.items, 0, lastChunk.size - localTo);
+			Arrays.fill(lastChunk.items, lastChunk.size - localTo, lastChunk.size, null);
+			lastChunk.size -= localTo;
+			//Drop the chunks in the middle
+			mChunks.subList(first + 1, last).clear();
+			if (lastChunk.size == 0) mChunks.remove(first + 1);
+		}
+		if (firstChunk.size == 0) {
+			mChunks.remove(first);
+			if (first < mChunks.size()) compact(first);
+		} else {
+			compact(first);
+		}
+		invalidateOffsets(first - 1);
+		mSize -= toIndex - fromIndex;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		mChunks.clear();
+		mValidOffsets = 0;
+		mSize = 0;
+		modCount++;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] array = new Object[mSize];
+		int position = 0;
+		for (Chunk chunk : mChunks) {
+			System.arraycopy(chunk.items, 0, array, position, chunk.size);
+			position += chunk.size;
+		}
+		return array;
+	}
+
+	/*-----------------*/
+	/* PRIVATE METHODS */
+	/*-----------------*/
+
+	/**
+	 * Appends the items to the sequence of chunks, completing the last chunk first.
+	 */
+	private void fill(List<Chunk> chunks, Object[] items, int count) {
+		int copied = 0;
+		while (copied < count) {
+			Chunk chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+			if (chunk == null || chunk.size == mChunkSize) {
+				chunk = new Chunk();
+				chunks.add(chunk);
+			}
+			int length = Math.min(count - copied, mChunkSize - chunk.size);
+			System.arraycopy(items, copied, chunk.items, chunk.size, length);
+			chunk.size += length;
+			copied += length;
+		}
+	}
+
+	/**
+	 * Merges the chunk with a neighbour when they fit together, so the list doesn't
+	 * degenerate into many small chunks.
+	 */
+	private void compact(int c) {
+		Chunk chunk = mChunks.get(c);
+		if (chunk.size > mChunkSize >> 2) return;
+		if (c + 1 < mChunks.size() && chunk.size + mChunks.get(c + 1).size <= mChunkSize) {
+			merge(c);
+		} else if (c > 0 && chunk.size + mChunks.get(c - 1).size <= mChunkSize) {
+			merge(c - 1);
+		}
+	}
+
+	/**
+	 * Moves the items of the chunk {@code c + 1} at the end of the chunk {@code c}.
+	 */
+	private void merge(int c) {
+		Chunk chunk = mChunks.get(c), next = mChunks.remove(c + 1);
+		System.arraycopy(next.items, 0, chunk.items, chunk.size, next.size);
+		chunk.size += next.size;
+	}
+
+	private void invalidateOffsets(int c) {
+		if (c + 1 < mValidOffsets) mValidOffsets = Math.max(0, c + 1);
+	}
+
+	/**
+	 * @return the index of the chunk containing the position
+	 */
+	private int chunkOf(int location) {
+		int count = mChunks.size();
+		if (mValidOffsets < count) {
+			if (mOffsets.length < count) mOffsets = Arrays.copyOf(mOffsets, Math.max(count, mOffsets.length << 1));
+			int offset = mValidOffsets == 0 ? 0 : mOffsets[mValidOffsets - 1] + mChunks.get(mValidOffsets - 1).size;
+			for (int i = mValidOffsets; i < count; i++) {
+				mOffsets[i] = offset;
+				offset += mChunks.get(i).size;
+			}
+			mValidOffsets = count;
+		}
+		//Binary search of the last chunk starting before or at the position
+		int low = 0, high = count - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (mOffsets[mid] <= location) low = mid;
+			else high = mid - 1;
+		}
+		return low;
+	}
+
+	private static void checkIndex(int location, int limit) {
+		if (location < 0 || location >= limit)
+			throw new IndexOutOfBoundsException("Index " + location + " limit=" + limit);
+	}
+
+	private class Chunk {
+		final Object[] items = new Object[mChunkSize];
+		int size;
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.utils;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive {@code long} keys and {@code int} values.
+ * <p>Open addressing with linear probing: no boxing and no entry objects are allocated on
+ * {@link #put(long, int)} and {@link #get(long, int)}. Unlike {@code LongSparseArray} the
+ * lookups take constant time also for large maps.</p>
+ * This class is not thread safe.
+ */
+public final class LongIntHashMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] mKeys;
+	private int[] mValues;
+	private boolean[] mUsed;
+	private int mSize;
+	private int mMask;
+
+	public LongIntHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize the number of entries the map should hold without resizing
+	 */
+	public LongIntHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * @param key     the key to search
+	 * @param missing the value to return if the key is not mapped
+	 * @return the value mapped to the key, or {@code missing} if not found
+	 */
+	public int get(long key, int missing) {
+		int slot = find(key);
+		return slot >= 0 ? mValues[slot] : missing;
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Maps the value to the key, overwriting the previous value if any.
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 */
+	public void put(long key, int value) {
+		int slot = hash(key) & mMask;
+		while (mUsed[slot]) {
+			if (mKeys[slot] == key) {
+				mValues[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mMask;
+		}
+		mUsed[slot] = true;
+		mKeys[slot] = key;
+		mValues[slot] = value;
+		//Keep the load factor under 0.5
+		if (++mSize << 1 > mKeys.length) rehash(mKeys.length << 1);
+	}
+
+	/**
+	 * @param key the key to remove
+	 * @return true if the key was mapped, false otherwise
+	 */
+	public boolean remove(long key) {
+		int slot = find(key);
+		if (slot < 0) return false;
+		mUsed[slot] = false;
+		mSize--;
+		//Shift back the following entries of the same cluster
+		int next = (slot + 1) & mMask;
+		while (mUsed[next]) {
+			int ideal = hash(mKeys[next]) & mMask;
+			//Move the entry if its ideal slot is not between the hole and its current slot
+			if ((next > slot && (ideal <= slot || ideal > next)) ||
+					(next < slot && (ideal <= slot && ideal > next))) {
+				mKeys[slot] = mKeys[next];
+				mValues[slot] = mValues[next];
+				mUsed[slot] = true;
+				mUsed[next] = false;
+				slot = next;
+			}
+			next = (next + 1) & mMask;
+		}
+		return true;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public void clear() {
+		if (mSize == 0) return;
+		Arrays.fill(mUsed, false);
+		mSize = 0;
+	}
+
+	private int find(long key) {
+		int slot = hash(key) & mMask;
+		while (mUsed[slot]) {
+			if (mKeys[slot] == key) return slot;
+			slot = (slot + 1) & mMask;
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity) {
+		long[] keys = mKeys;
+		int[] values = mValues;
+		boolean[] used = mUsed;
+		allocate(capacity);
+		mSize = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) put(keys[i], values[i]);
+		}
+	}
+
+	private void allocate(int capacity) {
+		mKeys = new long[capacity];
+		mValues = new int[capacity];
+		mUsed = new boolean[capacity];
+		mMask = capacity - 1;
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize << 1) capacity <<= 1;
+		return capacity;
+	}
+
+	private static int hash(long key) {
+		int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
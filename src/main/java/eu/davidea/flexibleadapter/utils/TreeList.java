@@ -0,0 +1,327 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.utils;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * List backed by an order-statistic tree (implicit treap), suitable as backing list of the
+ * Adapter for deep multi-level expandable data sets.
+ * <p>Each node holds the size of its subtree, so the access by position, the insertion and
+ * the removal of an item cost {@code O(log n)}. Inserting {@code k} items costs
+ * {@code O(k + log n)}, removing a range costs {@code O(k + log n)}, independently from the
+ * position in the list.</p>
+ * The position of an item is resolved in {@code O(log n)} by walking up from its node: the
+ * nodes of the equal items are found by {@code hashCode()} and {@code equals()}, and the
+ * first of them in the list wins, as for any list. The hash code of an item must not change
+ * while the item is in the list, items not found by hash are searched with a linear scan.
+ * <p>Usage: {@code new FlexibleAdapter<T>(new TreeList<T>(items), listeners);}</p>
+ * This class is not thread safe.
+ */
+public class TreeList<E> extends AbstractList<E> {
+
+	private final Random mRandom = new Random();
+	//First node of the chain of the nodes holding equal items
+	private final Map<Object, Node> mNodes = new HashMap<Object, Node>();
+	private Node mRoot;
+
+	public TreeList() {
+	}
+
+	/**
+	 * @param items the initial items
+	 */
+	public TreeList(Collection<? extends E> items) {
+		addAll(items);
+	}
+
+	@Override
+	public int size() {
+		return size(mRoot);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int location) {
+		return (E) nodeAt(location).item;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(int location, E object) {
+		Node node = nodeAt(location);
+		E previous = (E) node.item;
+		unmap(node);
+		node.item = object;
+		map(node);
+		return previous;
+	}
+
+	@Override
+	public void add(int location, E object) {
+		checkIndex(location, size() + 1);
+		Node node = new Node(object, mRandom.nextInt());
+		map(node);
+		Node[] parts = split(mRoot, location);
+		setRoot(merge(merge(parts[0], node), parts[1]));
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> collection) {
+		return addAll(size(), collection);
+	}
+
+	@Override
+	public boolean addAll(int location, Collection<? extends E> collection) {
+		checkIndex(location, size() + 1);
+		Object[] array = collection.toArray();
+		if (array.length == 0) return false;
+		Node[] parts = split(mRoot, location);
+		setRoot(merge(merge(parts[0], build(array)), parts[1]));
+		modCount++;
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E remove(int location) {
+		checkIndex(location, size());
+		Node[] parts = split(mRoot, location);
+		Node[] tail = split(parts[1], 1);
+		unmap(tail[0]);
+		setRoot(merge(parts[0], tail[1]));
+		modCount++;
+		return (E) tail[0].item;
+	}
+
+	/**
+	 * Detaches the range with two splits and a merge.
+	 * <p>Called by {@code subList(fromIndex, toIndex).clear()}.</p>
+	 */
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") size=" + size());
+		if (fromIndex == toIndex) return;
+		Node[] parts = split(mRoot, fromIndex);
+		Node[] tail = split(parts[1], toIndex - fromIndex);
+		unmapAll(tail[0]);
+		setRoot(merge(parts[0], tail[1]));
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		mRoot = null;
+		mNodes.clear();
+		modCount++;
+	}
+
+	/**
+	 * Resolves the position of the item in {@code O(d log n)} when found by hash, where
+	 * {@code d} is the number of equal items in the list.
+	 *
+	 * @param object the item to find
+	 * @return the position of the first equal item, -1 if not found
+	 */
+	@Override
+	public int indexOf(Object object) {
+		int first = -1;
+		for (Node node = mNodes.get(object); node != null; node = node.nextEqual) {
+			if (!equal(object, node.item)) continue;
+			int rank = rank(node);
+			if (rank >= 0 && (first < 0 || rank < first)) first = rank;
+		}
+		return first >= 0 ? first : super.indexOf(object);
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		return indexOf(object) >= 0;
+	}
+
+	/*-----------------*/
+	/* PRIVATE METHODS */
+	/*-----------------*/
+
+	private Node nodeAt(int location) {
+		checkIndex(location, size());
+		Node node = mRoot;
+		while (true) {
+			int leftSize = size(node.left);
+			if (location < leftSize) {
+				node = node.left;
+			} else if (location == leftSize) {
+				return node;
+			} else {
+				location -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * @return the position of the node, counting the nodes at its left while walking up,
+	 * -1 if the node is not in the tree anymore
+	 */
+	private int rank(Node node) {
+		int rank = size(node.left);
+		while (node.parent != null) {
+			if (node == node.parent.right) rank += size(node.parent.left) + 1;
+			node = node.parent;
+		}
+		return node == mRoot ? rank : -1;
+	}
+
+	/**
+	 * Splits the tree in the first {@code count} nodes and the rest.
+	 */
+	private static Node[] split(Node node, int count) {
+		if (node == null) return new Node[2];
+		Node[] parts;
+		if (size(node.left) >= count) {
+			parts = split(node.left, count);
+			setLeft(node, parts[1]);
+			parts[1] = node;
+		} else {
+			parts = split(node.right, count - size(node.left) - 1);
+			setRight(node, parts[0]);
+			parts[0] = node;
+		}
+		node.parent = null;
+		return parts;
+	}
+
+	private static Node merge(Node left, Node right) {
+		if (left == null) return right;
+		if (right == null) return left;
+		if (left.priority > right.priority) {
+			setRight(left, merge(left.right, right));
+			return left;
+		} else {
+			setLeft(right, merge(left, right.left));
+			return right;
+		}
+	}
+
+	/**
+	 * Builds a treap of the items in {@code O(k)}: each new node becomes the right child of
+	 * the last node with higher priority on the right spine.
+	 */
+	private Node build(Object[] items) {
+		Node[] spine = new Node[items.length];
+		int top = -1;
+		for (Object item : items) {
+			Node node = new Node(item, mRandom.nextInt());
+			map(node);
+			Node last = null;
+			while (top >= 0 && spine[top].priority < node.priority) {
+				last = spine[top--];
+				update(last);
+			}
+			setLeft(node, last);
+			if (top >= 0) spine[top].right = node;
+			node.parent = top >= 0 ? spine[top] : null;
+			spine[++top] = node;
+		}
+		while (top > 0) update(spine[top--]);
+		update(spine[0]);
+		return spine[0];
+	}
+
+	private void setRoot(Node root) {
+		mRoot = root;
+		if (root != null) root.parent = null;
+	}
+
+	private void map(Node node) {
+		node.nextEqual = mNodes.put(node.item, node);
+	}
+
+	/**
+	 * Unlinks the node from the chain of its equal items.
+	 */
+	private void unmap(Node node) {
+		Node first = mNodes.get(node.item);
+		if (first == node) {
+			if (node.nextEqual != null) mNodes.put(node.item, node.nextEqual);
+			else mNodes.remove(node.item);
+			node.nextEqual = null;
+			return;
+		}
+		for (Node previous = first; previous != null; previous = previous.nextEqual) {
+			if (previous.nextEqual == node) {
+				previous.nextEqual = node.nextEqual;
+				node.nextEqual = null;
+				return;
+			}
+		}
+	}
+
+	private void unmapAll(Node node) {
+		if (node == null) return;
+		unmap(node);
+		unmapAll(node.left);
+		unmapAll(node.right);
+	}
+
+	private static void setLeft(Node node, Node left) {
+		node.left = left;
+		if (left != null) left.parent = node;
+		update(node);
+	}
+
+	private static void setRight(Node node, Node right) {
+		node.right = right;
+		if (right != null) right.parent = node;
+		update(node);
+	}
+
+	private static void update(Node node) {
+		node.size = size(node.left) + size(node.right) + 1;
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static void checkIndex(int location, int limit) {
+		if (location < 0 || location >= limit)
+			throw new IndexOutOfBoundsException("Index " + location + " limit=" + limit);
+	}
+
+	private static class Node {
+		Object item;
+		final int priority;
+		int size = 1;
+		Node left, right, parent, nextEqual;
+
+		Node(Object item, int priority) {
+			this.item = item;
+			this.priority = priority;
+		}
+	}
+
+}
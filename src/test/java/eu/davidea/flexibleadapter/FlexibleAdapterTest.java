@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import eu.davidea.flexibleadapter.items.AbstractExpandableItem;
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.items.ILazyExpandable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlexibleAdapterTest {
+
+	private FlexibleAdapter<TestItem> adapter;
+
+	private static class ExpandableItem extends AbstractExpandableItem<RecyclerView.ViewHolder, IFlexible> {
+		ExpandableItem(String... subItems) {
+			for (String id : subItems) addSubItem(new TestItem(id));
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o;
+		}
+	}
+
+	private static class LazyItem extends TestItem implements ILazyExpandable<RecyclerView.ViewHolder, TestItem> {
+		boolean expanded;
+		List<TestItem> subItems;
+
+		LazyItem(String id) {
+			super(id);
+		}
+
+		@Override
+		public boolean isExpanded() {
+			return expanded;
+		}
+
+		@Override
+		public void setExpanded(boolean expanded) {
+			this.expanded = expanded;
+		}
+
+		@Override
+		public List<TestItem> getSubItems() {
+			return subItems;
+		}
+
+		@Override
+		public boolean isSubItemsLoaded() {
+			return subItems != null;
+		}
+
+		@Override
+		public void setLoadedSubItems(List<TestItem> subItems) {
+			this.subItems = subItems;
+		}
+	}
+
+	private static List<TestItem> items(String... ids) {
+		List<TestItem> items = new ArrayList<TestItem>();
+		for (String id : ids) items.add(new TestItem(id));
+		return items;
+	}
+
+	/**
+	 * The mockable Adapter has no list of observers: the notifications need an empty one.
+	 */
+	private static void ensureObservers(RecyclerView.Adapter adapter) throws Exception {
+		Field observable = RecyclerView.Adapter.class.getDeclaredField("mObservable");
+		observable.setAccessible(true);
+		Field observers = android.database.Observable.class.getDeclaredField("mObservers");
+		observers.setAccessible(true);
+		if (observers.get(observable.get(adapter)) == null)
+			observers.set(observable.get(adapter), new ArrayList<Object>());
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		adapter = new FlexibleAdapter<TestItem>(items("a", "b", "c", "d"));
+		ensureObservers(adapter);
+		adapter.setMode(SelectableAdapter.MODE_MULTI);
+	}
+
+	@Test
+	public void updateDataSet_selectionFollowsTheItemsAfterRemovals() {
+		adapter.toggleSelection(3);
+		adapter.updateDataSet(items("b", "c", "d"), true);
+		assertEquals(Arrays.asList(2), adapter.getSelectedPositions());
+	}
+
+	@Test
+	public void updateDataSet_selectionFollowsTheItemsInBatch() {
+		adapter.toggleSelection(3);
+		adapter.beginBatch();
+		adapter.updateDataSet(items("b", "c", "d"), true);
+		adapter.commitBatch();
+		assertEquals(Arrays.asList(2), adapter.getSelectedPositions());
+	}
+
+	@Test
+	public void expandAll_loadsTheLazyItems() throws Exception {
+		List<TestItem> items = items("a", "b");
+		LazyItem lazy = new LazyItem("p");
+		items.add(1, lazy);
+		adapter = new FlexibleAdapter<TestItem>(items);
+		ensureObservers(adapter);
+		final int[] loads = {0};
+		//Without Executor the subItems are loaded on expansion
+		adapter.setSubItemsLoader(new FlexibleAdapter.SubItemsLoader<TestItem>() {
+			@Override
+			public TestItem onCreateLoadingItem(ILazyExpandable expandable) {
+				return null;
+			}
+
+			@Override
+			public List<TestItem> onLoadSubItems(ILazyExpandable expandable) {
+				loads[0]++;
+				return items("p0", "p1");
+			}
+		}, null);
+
+		adapter.expandAll();
+		assertEquals(1, loads[0]);
+		assertTrue(lazy.isExpanded());
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; i < adapter.getItemCount(); i++) ids.add(adapter.getItem(i).toString());
+		assertEquals(Arrays.asList("a", "p", "p0", "p1", "b"), ids);
+	}
+
+	private static int subItemsCacheSize(FlexibleAdapter adapter) throws Exception {
+		Field cache = FlexibleAdapter.class.getDeclaredField("mSubItemsCache");
+		cache.setAccessible(true);
+		return ((Map) cache.get(adapter)).size();
+	}
+
+	@Test
+	public void removedItems_leaveTheSubItemsCache() throws Exception {
+		FlexibleAdapter<IFlexible> adapter = new FlexibleAdapter<IFlexible>(new ArrayList<IFlexible>());
+		ensureObservers(adapter);
+		for (int round = 0; round < 20; round++) {
+			ExpandableItem expandable = new ExpandableItem("s0", "s1");
+			adapter.addItem(0, expandable);
+			adapter.expand(0);
+			adapter.removeItem(0);
+			adapter.emptyBin();
+		}
+		assertEquals(0, subItemsCacheSize(adapter));
+
+		adapter.setPermanentDelete(true);
+		for (int round = 0; round < 20; round++) {
+			ExpandableItem expandable = new ExpandableItem("s0", "s1");
+			adapter.addItem(0, expandable);
+			adapter.expand(0);
+			adapter.removeItem(0);
+		}
+		assertEquals(0, subItemsCacheSize(adapter));
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ItemsDiffTest {
+
+	/**
+	 * Applies the notifications to the list of the old positions, -1 for the inserted items.
+	 */
+	private static class Replay implements ItemsDiff.Callback {
+		final List<Integer> positions = new ArrayList<Integer>();
+		final List<String> calls = new ArrayList<String>();
+		final List<Integer> changed = new ArrayList<Integer>();
+
+		Replay(int oldSize) {
+			for (int i = 0; i < oldSize; i++) positions.add(i);
+		}
+
+		@Override
+		public void onRemoved(int positionStart, int itemCount) {
+			calls.add("removed " + positionStart + "," + itemCount);
+			positions.subList(positionStart, positionStart + itemCount).clear();
+		}
+
+		@Override
+		public void onMoved(int fromPosition, int toPosition) {
+			calls.add("moved " + fromPosition + "," + toPosition);
+			positions.add(toPosition, positions.remove(fromPosition));
+		}
+
+		@Override
+		public void onInserted(int positionStart, int itemCount) {
+			calls.add("inserted " + positionStart + "," + itemCount);
+			for (int i = 0; i < itemCount; i++) positions.add(positionStart, -1);
+		}
+
+		@Override
+		public void onChanged(int positionStart, int itemCount, Object payload) {
+			calls.add("changed " + positionStart + "," + itemCount);
+			for (int i = 0; i < itemCount; i++) changed.add(positionStart + i);
+		}
+	}
+
+	private static List<TestItem> items(String... ids) {
+		List<TestItem> items = new ArrayList<TestItem>();
+		for (String id : ids) items.add(new TestItem(id));
+		return items;
+	}
+
+	private static Replay dispatch(List<TestItem> oldItems, List<TestItem> newItems, boolean byStableId) {
+		ItemsDiff<TestItem> diff = new ItemsDiff<TestItem>(oldItems, newItems, byStableId);
+		Replay replay = new Replay(oldItems.size());
+		diff.dispatch(replay, null);
+		//Each position must hold the matched old item, or an inserted item
+		assertEquals(newItems.size(), replay.positions.size());
+		for (int j = 0; j < newItems.size(); j++) {
+			int oldPosition = replay.positions.get(j);
+			if (oldPosition >= 0) {
+				if (byStableId)
+					assertEquals(newItems.get(j).getStableId(), oldItems.get(oldPosition).getStableId());
+				else assertEquals(newItems.get(j), oldItems.get(oldPosition));
+				assertEquals(j, diff.getNewPosition(oldPosition));
+			}
+		}
+		return replay;
+	}
+
+	@Test
+	public void removals_areNotifiedFromTheLast() {
+		Replay replay = dispatch(items("a", "b", "c", "d", "e", "f"), items("a", "d", "f"), false);
+		assertEquals(Arrays.asList("removed 4,1", "removed 1,2"), replay.calls);
+	}
+
+	@Test
+	public void insertions_areMergedFromTheFirst() {
+		Replay replay = dispatch(items("a", "d"), items("a", "b", "c", "d", "e"), false);
+		assertEquals(Arrays.asList("inserted 1,2", "inserted 4,1"), replay.calls);
+	}
+
+	@Test
+	public void onlyTheItemsOutOfOrder_areMoved() {
+		Replay replay = dispatch(items("a", "b", "c", "d", "e"), items("b", "c", "d", "e", "a"), false);
+		assertEquals(Arrays.asList("moved 0,4"), replay.calls);
+		replay = dispatch(items("a", "b", "c", "d", "e"), items("e", "a", "b", "c", "d"), false);
+		assertEquals(Arrays.asList("moved 4,0"), replay.calls);
+	}
+
+	@Test
+	public void movesFollowRemovals_andPrecedeInsertions() {
+		Replay replay = dispatch(items("a", "b", "c", "d"), items("x", "d", "a", "c"), false);
+		assertEquals(Arrays.asList("removed 1,1", "moved 2,0", "inserted 0,1"), replay.calls);
+	}
+
+	@Test
+	public void changedContent_isNotifiedByStableId() {
+		List<TestItem> oldItems = items("a", "b", "c");
+		List<TestItem> newItems = items("a", "b", "c");
+		//Same stable id, different identity for equals()
+		newItems.set(1, new TestItem("z"));
+		newItems.get(1).stableId = oldItems.get(1).getStableId();
+		Replay replay = dispatch(oldItems, newItems, true);
+		assertEquals(Arrays.asList("changed 1,1"), replay.calls);
+	}
+
+	@Test
+	public void changedContent_isNotifiedByTheComparator() {
+		List<TestItem> oldItems = new ArrayList<TestItem>();
+		oldItems.add(new TestItem("a", "x"));
+		oldItems.add(new TestItem("b", "x"));
+		List<TestItem> newItems = new ArrayList<TestItem>();
+		newItems.add(new TestItem("a", "x"));
+		newItems.add(new TestItem("b", "y"));
+		ItemsDiff<TestItem> diff = new ItemsDiff<TestItem>(oldItems, newItems, false, true,
+				new ItemsDiff.ContentComparator<TestItem>() {
+					@Override
+					public boolean areContentsTheSame(TestItem oldItem, TestItem newItem) {
+						return oldItem.content.equals(newItem.content);
+					}
+				});
+		Replay replay = new Replay(oldItems.size());
+		diff.dispatch(replay, null);
+		assertEquals(Arrays.asList("changed 1,1"), replay.calls);
+		assertSame(oldItems.get(0), diff.getResult().get(0));
+		assertSame(newItems.get(1), diff.getResult().get(1));
+	}
+
+	@Test
+	public void unchangedItems_keepTheOldInstances() {
+		List<TestItem> oldItems = items("a", "b");
+		List<TestItem> newItems = items("b", "a", "c");
+		List<TestItem> result = new ItemsDiff<TestItem>(oldItems, newItems, false, true).getResult();
+		assertSame(oldItems.get(1), result.get(0));
+		assertSame(oldItems.get(0), result.get(1));
+		assertSame(newItems.get(2), result.get(2));
+		result = new ItemsDiff<TestItem>(oldItems, newItems, false, false).getResult();
+		assertSame(newItems.get(0), result.get(0));
+	}
+
+	@Test
+	public void duplicates_matchTheFirstOccurrence() {
+		Replay replay = dispatch(items("a", "a", "b"), items("a", "b"), false);
+		assertEquals(Arrays.asList("removed 1,1"), replay.calls);
+	}
+
+	@Test
+	public void randomLists_replayToTheNewList() {
+		Random random = new Random(11);
+		for (int round = 0; round < 500; round++) {
+			List<TestItem> oldItems = new ArrayList<TestItem>();
+			for (int i = 0; i < random.nextInt(30); i++) oldItems.add(new TestItem("i" + i));
+			List<TestItem> newItems = new ArrayList<TestItem>();
+			for (TestItem item : oldItems) {
+				if (random.nextInt(4) > 0) newItems.add(item);
+			}
+			for (int i = 0; i < random.nextInt(10); i++) {
+				newItems.add(random.nextInt(newItems.size() + 1), new TestItem("n" + i));
+			}
+			if (newItems.size() > 1 && random.nextBoolean()) {
+				Collections.swap(newItems, random.nextInt(newItems.size()), random.nextInt(newItems.size()));
+			}
+			Replay replay = dispatch(oldItems, newItems, random.nextBoolean());
+			assertTrue(replay.changed.isEmpty());
+		}
+	}
+
+}
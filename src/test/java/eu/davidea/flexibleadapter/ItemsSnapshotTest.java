@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ItemsSnapshotTest {
+
+	private static ItemsSnapshot<TestItem> snapshotOf(List<TestItem> items, long version) {
+		return new ItemsSnapshot<TestItem>(items.toArray(), version);
+	}
+
+	@Test
+	public void snapshot_isNotAffectedByTheLaterMutations() {
+		List<TestItem> items = new ArrayList<TestItem>();
+		items.add(new TestItem("a"));
+		items.add(new TestItem("b"));
+		ItemsSnapshot<TestItem> snapshot = snapshotOf(items, 1L);
+		items.remove(0);
+		items.add(new TestItem("c"));
+
+		assertEquals(1L, snapshot.getVersion());
+		assertEquals(2, snapshot.size());
+		assertEquals("a", snapshot.get(0).id);
+		assertEquals("b", snapshot.asList().get(1).id);
+	}
+
+	@Test
+	public void asList_isReadOnlyAndNotCopied() {
+		List<TestItem> items = new ArrayList<TestItem>();
+		items.add(new TestItem("a"));
+		ItemsSnapshot<TestItem> snapshot = snapshotOf(items, 1L);
+		assertSame(snapshot.asList(), snapshot.asList());
+		assertSame(snapshot.get(0), snapshot.asList().get(0));
+		try {
+			snapshot.asList().add(new TestItem("b"));
+			fail("The snapshot must be read only");
+		} catch (UnsupportedOperationException expected) {
+			//Expected
+		}
+	}
+
+	/**
+	 * The writer keeps publishing snapshots of a list of increasing length, where the item at
+	 * position {@code i} is always {@code "i"}: the readers, without any lock, must never
+	 * observe a torn list.
+	 */
+	@Test(timeout = 30000)
+	public void readers_neverObserveATornList() throws Exception {
+		final AtomicReference<ItemsSnapshot<TestItem>> published = new AtomicReference<ItemsSnapshot<TestItem>>();
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final int publications = 2000;
+		Thread[] readers = new Thread[4];
+		for (int r = 0; r < readers.length; r++) {
+			readers[r] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					long lastVersion = 0;
+					while (lastVersion < publications && failure.get() == null) {
+						ItemsSnapshot<TestItem> snapshot = published.get();
+						if (snapshot == null) continue;
+						if (snapshot.getVersion() < lastVersion) failure.set("Version went back");
+						if (snapshot.size() != snapshot.getVersion()) failure.set("Size differs from version");
+						for (int i = 0; i < snapshot.size(); i++) {
+							if (!String.valueOf(i).equals(snapshot.get(i).id)) failure.set("Torn list at " + i);
+						}
+						lastVersion = snapshot.getVersion();
+					}
+				}
+			});
+			readers[r].start();
+		}
+		List<TestItem> items = new ArrayList<TestItem>();
+		for (int version = 1; version <= publications; version++) {
+			items.add(new TestItem(String.valueOf(items.size())));
+			published.set(snapshotOf(items, version));
+		}
+		for (Thread reader : readers) reader.join();
+		assertNull(failure.get(), failure.get());
+	}
+
+}
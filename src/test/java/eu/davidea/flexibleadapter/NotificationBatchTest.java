@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class NotificationBatchTest {
+
+	/**
+	 * Records the notifications as strings.
+	 */
+	private static class Recorder extends RecyclerView.AdapterDataObserver {
+		final List<String> calls = new ArrayList<String>();
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			calls.add("changed " + positionStart + "," + itemCount + "," + payload);
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			calls.add("inserted " + positionStart + "," + itemCount);
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			calls.add("removed " + positionStart + "," + itemCount);
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			calls.add("moved " + fromPosition + "," + toPosition);
+		}
+	}
+
+	private static List<String> dispatch(NotificationBatch batch) {
+		Recorder recorder = new Recorder();
+		batch.dispatch(recorder);
+		return recorder.calls;
+	}
+
+	@Test
+	public void contiguousInsertions_areMerged() {
+		NotificationBatch batch = new NotificationBatch();
+		batch.add(NotificationBatch.INSERTED, 5, 1, null);
+		batch.add(NotificationBatch.INSERTED, 6, 2, null);
+		batch.add(NotificationBatch.INSERTED, 5, 1, null);
+		assertEquals(Arrays.asList("inserted 5,4"), dispatch(batch));
+	}
+
+	@Test
+	public void forwardAndBackwardRemovals_areMerged() {
+		NotificationBatch batch = new NotificationBatch();
+		batch.add(NotificationBatch.REMOVED, 5, 1, null);
+		batch.add(NotificationBatch.REMOVED, 5, 2, null);
+		batch.add(NotificationBatch.REMOVED, 3, 2, null);
+		assertEquals(Arrays.asList("removed 3,5"), dispatch(batch));
+	}
+
+	@Test
+	public void changes_areMergedOnlyWithTheSamePayload() {
+		NotificationBatch batch = new NotificationBatch();
+		batch.add(NotificationBatch.CHANGED, 2, 2, "p");
+		batch.add(NotificationBatch.CHANGED, 4, 1, "p");
+		batch.add(NotificationBatch.CHANGED, 5, 1, "q");
+		assertEquals(Arrays.asList("changed 2,3,p", "changed 5,1,q"), dispatch(batch));
+	}
+
+	@Test
+	public void changeOfInsertedItems_isDropped() {
+		NotificationBatch batch = new NotificationBatch();
+		batch.add(NotificationBatch.INSERTED, 2, 3, null);
+		batch.add(NotificationBatch.CHANGED, 3, 1, null);
+		assertEquals(Arrays.asList("inserted 2,3"), dispatch(batch));
+	}
+
+	@Test
+	public void differentTypes_keepTheirOrder() {
+		NotificationBatch batch = new NotificationBatch();
+		batch.add(NotificationBatch.INSERTED, 0, 1, null);
+		batch.add(NotificationBatch.MOVED, 3, 1, null);
+		batch.add(NotificationBatch.REMOVED, 2, 1, null);
+		batch.add(NotificationBatch.INSERTED, 4, 0, null);
+		assertEquals(Arrays.asList("inserted 0,1", "moved 3,1", "removed 2,1"), dispatch(batch));
+		//The batch is cleared by the dispatch
+		assertEquals(0, dispatch(batch).size());
+	}
+
+	/**
+	 * Replaying the merged notifications on a copy of the initial list must produce the same
+	 * list obtained by the single operations.
+	 */
+	@Test
+	public void mergedNotifications_describeTheSameChanges() {
+		Random random = new Random(5);
+		for (int round = 0; round < 200; round++) {
+			List<Integer> list = new ArrayList<Integer>();
+			for (int i = 0; i < 20; i++) list.add(i);
+			final List<Integer> replay = new ArrayList<Integer>(list);
+			NotificationBatch batch = new NotificationBatch();
+			int next = 100;
+			for (int step = 0; step < 30; step++) {
+				int size = list.size();
+				if (random.nextBoolean() || size == 0) {
+					//Insertions around the previous one, to be merged
+					int position = random.nextInt(size + 1), count = 1 + random.nextInt(3);
+					for (int i = 0; i < count; i++) list.add(position + i, next++);
+					batch.add(NotificationBatch.INSERTED, position, count, null);
+				} else {
+					int position = random.nextInt(size);
+					int count = 1 + random.nextInt(Math.min(3, size - position));
+					list.subList(position, position + count).clear();
+					batch.add(NotificationBatch.REMOVED, position, count, null);
+				}
+			}
+			batch.dispatch(new RecyclerView.AdapterDataObserver() {
+				@Override
+				public void onItemRangeInserted(int positionStart, int itemCount) {
+					for (int i = 0; i < itemCount; i++) replay.add(positionStart, -1);
+				}
+
+				@Override
+				public void onItemRangeRemoved(int positionStart, int itemCount) {
+					replay.subList(positionStart, positionStart + itemCount).clear();
+				}
+			});
+			assertEquals(list.size(), replay.size());
+			for (int i = 0; i < list.size(); i++) {
+				//Initial items must be found at the same positions, the others are new
+				if (list.get(i) < 100) assertEquals(list.get(i), replay.get(i));
+				else assertEquals(-1, (int) replay.get(i));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PositionIndexTest {
+
+	private static List<TestItem> items(String... ids) {
+		List<TestItem> items = new ArrayList<TestItem>();
+		for (String id : ids) items.add(new TestItem(id));
+		return items;
+	}
+
+	@Test
+	public void indexOf_returnsFirstOccurrence() {
+		List<TestItem> items = items("a", "b", "a", "c");
+		PositionIndex index = new PositionIndex(false);
+		assertEquals(0, index.indexOf(items, new TestItem("a")));
+		assertEquals(3, index.indexOf(items, new TestItem("c")));
+		assertEquals(-1, index.indexOf(items, new TestItem("z")));
+	}
+
+	@Test
+	public void indexOf_followsTheMutations() {
+		List<TestItem> items = items("a", "b", "c", "d");
+		PositionIndex index = new PositionIndex(false);
+		assertEquals(3, index.indexOf(items, new TestItem("d")));
+
+		items.add(1, new TestItem("x"));
+		index.invalidate(1);
+		assertEquals(0, index.indexOf(items, new TestItem("a")));
+		assertEquals(4, index.indexOf(items, new TestItem("d")));
+		assertEquals(1, index.indexOf(items, new TestItem("x")));
+
+		items.remove(0);
+		index.invalidate(0);
+		assertEquals(-1, index.indexOf(items, new TestItem("a")));
+		assertEquals(3, index.indexOf(items, new TestItem("d")));
+	}
+
+	@Test
+	public void indexOf_byStableId() {
+		List<TestItem> items = items("a", "b", "c");
+		PositionIndex index = new PositionIndex(true);
+		assertEquals(2, index.indexOf(items, new TestItem("c")));
+		assertEquals(1, index.indexOfStableId(items, new TestItem("b").getStableId()));
+
+		items.remove(0);
+		index.invalidate(0);
+		assertEquals(1, index.indexOf(items, new TestItem("c")));
+		assertEquals(-1, index.indexOfStableId(items, new TestItem("a").getStableId()));
+	}
+
+	@Test
+	public void indexOf_byStableId_fallsBackToEqualsOnCollision() {
+		List<TestItem> items = items("a", "b", "c");
+		for (TestItem item : items) item.stableId = 7L;
+		PositionIndex index = new PositionIndex(true);
+		TestItem query = new TestItem("c");
+		query.stableId = 7L;
+		assertEquals(2, index.indexOf(items, query));
+	}
+
+	@Test
+	public void indexOf_byStableId_fallsBackToEqualsOnInconsistentId() {
+		List<TestItem> items = items("a", "b", "c");
+		//Equal to the item at position 1, but with another stable id
+		TestItem query = new TestItem("b");
+		query.stableId = 99L;
+		PositionIndex index = new PositionIndex(true);
+		assertEquals(1, index.indexOf(items, query));
+	}
+
+}
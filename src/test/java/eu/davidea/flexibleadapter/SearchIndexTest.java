@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.davidea.flexibleadapter.items.IExpandable;
+import eu.davidea.flexibleadapter.items.ISearchable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTest {
+
+	/**
+	 * Searchable item, expandable when it has subItems.
+	 */
+	private static class Word extends TestItem implements ISearchable, IExpandable<RecyclerView.ViewHolder, Word> {
+		final List<Word> subItems = new ArrayList<Word>();
+		boolean expanded;
+
+		Word(String text, Word... subItems) {
+			super(text, text);
+			this.subItems.addAll(Arrays.asList(subItems));
+		}
+
+		@Override
+		public String[] getSearchTokens() {
+			return new String[]{content};
+		}
+
+		@Override
+		public boolean filter(String constraint) {
+			return content.contains(constraint);
+		}
+
+		@Override
+		public boolean isExpanded() {
+			return expanded;
+		}
+
+		@Override
+		public void setExpanded(boolean expanded) {
+			this.expanded = expanded;
+		}
+
+		@Override
+		public List<Word> getSubItems() {
+			return subItems;
+		}
+	}
+
+	private final SearchIndex<Word> index = new SearchIndex<Word>();
+	private final Set<Word> candidateChildren = Collections.newSetFromMap(new IdentityHashMap<Word, Boolean>());
+
+	private List<Word> query(List<Word> items, String constraint) {
+		Map<Word, List<Word>> children = new IdentityHashMap<Word, List<Word>>();
+		for (Word item : items) {
+			if (!item.subItems.isEmpty()) children.put(item, item.subItems);
+		}
+		candidateChildren.clear();
+		return index.query(items, children, constraint, candidateChildren);
+	}
+
+	@Test
+	public void query_returnsTheCandidatesInOrder() {
+		Word apple = new Word("apple"), banana = new Word("banana"), cherry = new Word("cherry");
+		List<Word> items = Arrays.asList(apple, banana, cherry);
+		index.addAll(items);
+		assertEquals(Arrays.asList(banana), query(items, "an"));
+		assertEquals(Arrays.asList(apple, banana), query(items, "a"));
+		assertEquals(Arrays.asList(banana), query(items, "banan"));
+		assertEquals(Collections.<Word>emptyList(), query(items, "kiwi"));
+	}
+
+	@Test
+	public void itemsNotIndexed_areAlwaysCandidates() {
+		Word apple = new Word("apple"), banana = new Word("banana");
+		index.addAll(Arrays.asList(apple));
+		assertEquals(Arrays.asList(banana), query(Arrays.asList(apple, banana), "kiwi"));
+		index.removeAll(Arrays.asList(apple));
+		assertEquals(Arrays.asList(apple, banana), query(Arrays.asList(apple, banana), "kiwi"));
+	}
+
+	@Test
+	public void parentOfACandidateChild_isCandidate() {
+		Word banana = new Word("banana");
+		Word fruits = new Word("fruits", new Word("apple"), banana);
+		List<Word> items = Arrays.asList(new Word("bread"), fruits);
+		index.addAll(items);
+		assertEquals(Arrays.asList(fruits), query(items, "nan"));
+		assertEquals(Collections.singleton(banana), candidateChildren);
+	}
+
+	@Test
+	public void childMovedToTheFirstLevel_staysIndexed() {
+		Word banana = new Word("banana");
+		Word fruits = new Word("fruits", banana);
+		index.addAll(Arrays.asList(fruits));
+		//The child becomes an item of the first level in the same update
+		fruits.subItems.clear();
+		List<Word> items = Arrays.asList(fruits, banana);
+		index.retainAll(items);
+		assertEquals(Arrays.asList(banana), query(items, "ban"));
+		//Still indexed: not a candidate of a different text
+		assertEquals(Arrays.asList(fruits), query(items, "fru"));
+	}
+
+	@Test
+	public void itemMovedUnderAParent_staysIndexed() {
+		Word banana = new Word("banana"), fruits = new Word("fruits");
+		index.addAll(Arrays.asList(fruits, banana));
+		fruits.subItems.add(banana);
+		List<Word> items = Arrays.<Word>asList(fruits);
+		index.retainAll(items);
+		assertEquals(Arrays.asList(fruits), query(items, "ban"));
+		assertEquals(Collections.singleton(banana), candidateChildren);
+		assertEquals(Arrays.asList(fruits), query(items, "fru"));
+		assertTrue(candidateChildren.isEmpty());
+	}
+
+	@Test
+	public void retainAll_removesTheOldItems() {
+		Word apple = new Word("apple"), banana = new Word("banana");
+		index.addAll(Arrays.asList(apple, banana));
+		index.retainAll(Arrays.asList(banana));
+		//Removed from the index, so always a candidate
+		assertEquals(Arrays.asList(apple), query(Arrays.asList(apple, banana), "kiwi"));
+	}
+
+	@Test
+	public void update_tokenizesAgain() {
+		Word fruit = new Word("apple");
+		List<Word> items = Arrays.asList(fruit);
+		index.addAll(items);
+		fruit.content = "cherry";
+		index.update(fruit);
+		assertEquals(Collections.<Word>emptyList(), query(items, "app"));
+		assertEquals(items, query(items, "err"));
+	}
+
+	@Test
+	public void compaction_keepsTheLiveItems() {
+		List<Word> items = new ArrayList<Word>();
+		for (int i = 0; i < 100; i++) items.add(new Word("word" + i));
+		index.addAll(items);
+		for (int round = 0; round < 30; round++) {
+			for (Word item : items) index.update(item);
+		}
+		assertEquals(Arrays.asList(items.get(42)), query(items, "word42"));
+		assertEquals(11, query(items, "word4").size());
+	}
+
+}
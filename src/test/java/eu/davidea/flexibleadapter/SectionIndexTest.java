@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import eu.davidea.flexibleadapter.items.AbstractHeaderItem;
+import eu.davidea.flexibleadapter.items.AbstractSectionableItem;
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.items.IHeader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SectionIndexTest {
+
+	private static class Header extends AbstractHeaderItem<RecyclerView.ViewHolder> {
+		@Override
+		public boolean equals(Object o) {
+			return this == o;
+		}
+	}
+
+	private static class Item extends AbstractSectionableItem<RecyclerView.ViewHolder, Header> {
+		Item(Header header) {
+			setHeader(header);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o;
+		}
+	}
+
+	//Only recognizes the headers, its own list is not used
+	private final FlexibleAdapter<IFlexible> adapter = new FlexibleAdapter<IFlexible>(new ArrayList<IFlexible>());
+
+	/**
+	 * Linear scan with the same rules of the index.
+	 */
+	private int[] scan(List<IFlexible> items, int position) {
+		IHeader header = null;
+		int headerPosition = -1;
+		for (int i = 0; i <= position; i++) {
+			IFlexible item = items.get(i);
+			if (adapter.isHeader(item)) {
+				header = (IHeader) item;
+				headerPosition = i;
+			} else {
+				IHeader itemHeader = adapter.getHeaderOf(item);
+				if (itemHeader != null && itemHeader != header) {
+					header = itemHeader;
+					headerPosition = -1;
+				}
+			}
+		}
+		return new int[]{header != null ? System.identityHashCode(header) : 0, headerPosition};
+	}
+
+	@Test
+	public void itemsWithoutHeader_belongToThePreviousSection() {
+		Header a = new Header(), b = new Header();
+		List<IFlexible> items = new ArrayList<IFlexible>();
+		items.add(new Item(null));
+		items.add(a);
+		items.add(new Item(a));
+		items.add(new Item(null));
+		items.add(new Item(b));
+		items.add(new Item(b));
+		SectionIndex<IFlexible> index = new SectionIndex<IFlexible>();
+
+		assertNull(index.getHeaderOn(adapter, items, 0));
+		assertEquals(-1, index.getHeaderPositionOn(adapter, items, 0));
+		assertSame(a, index.getHeaderOn(adapter, items, 1));
+		assertEquals(1, index.getHeaderPositionOn(adapter, items, 3));
+		assertSame(a, index.getHeaderOn(adapter, items, 3));
+		//The header item of the section is not displayed
+		assertSame(b, index.getHeaderOn(adapter, items, 5));
+		assertEquals(-1, index.getHeaderPositionOn(adapter, items, 4));
+	}
+
+	@Test
+	public void sections_followTheInvalidatedMutations() {
+		Header a = new Header(), b = new Header();
+		List<IFlexible> items = new ArrayList<IFlexible>();
+		items.add(a);
+		for (int i = 0; i < 4; i++) items.add(new Item(a));
+		SectionIndex<IFlexible> index = new SectionIndex<IFlexible>();
+		assertEquals(0, index.getHeaderPositionOn(adapter, items, 4));
+
+		items.add(2, b);
+		index.invalidate(2);
+		assertEquals(0, index.getHeaderPositionOn(adapter, items, 1));
+		assertSame(b, index.getHeaderOn(adapter, items, 2));
+		assertEquals(2, index.getHeaderPositionOn(adapter, items, 2));
+		//The next item holds the previous header again
+		assertSame(a, index.getHeaderOn(adapter, items, 3));
+		assertEquals(-1, index.getHeaderPositionOn(adapter, items, 5));
+
+		items.remove(0);
+		index.invalidate(0);
+		assertSame(a, index.getHeaderOn(adapter, items, 0));
+		assertEquals(-1, index.getHeaderPositionOn(adapter, items, 0));
+		assertEquals(1, index.getHeaderPositionOn(adapter, items, 1));
+		assertEquals(-1, index.getHeaderPositionOn(adapter, items, 2));
+	}
+
+	@Test
+	public void randomMutations_matchTheLinearScan() {
+		Random random = new Random(21);
+		Header[] headers = {new Header(), new Header(), new Header()};
+		List<IFlexible> items = new ArrayList<IFlexible>();
+		SectionIndex<IFlexible> index = new SectionIndex<IFlexible>();
+		for (int step = 0; step < 3000; step++) {
+			int position = random.nextInt(items.size() + 1);
+			if (items.isEmpty() || random.nextInt(3) > 0) {
+				int kind = random.nextInt(headers.length + 2);
+				IFlexible item = kind < headers.length ? headers[kind]
+						: new Item(kind == headers.length ? headers[random.nextInt(headers.length)] : null);
+				items.add(position, item);
+			} else {
+				position = Math.min(position, items.size() - 1);
+				items.remove(position);
+			}
+			index.invalidate(position);
+			for (int k = 0; k < 3 && !items.isEmpty(); k++) {
+				int lookup = random.nextInt(items.size());
+				int[] expected = scan(items, lookup);
+				IHeader header = index.getHeaderOn(adapter, items, lookup);
+				assertEquals(expected[0], header != null ? System.identityHashCode(header) : 0);
+				assertEquals(expected[1], index.getHeaderPositionOn(adapter, items, lookup));
+			}
+		}
+	}
+
+}
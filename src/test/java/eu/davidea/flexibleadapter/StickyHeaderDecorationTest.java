@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import eu.davidea.flexibleadapter.items.AbstractHeaderItem;
+import eu.davidea.flexibleadapter.items.IFlexible;
+import eu.davidea.flexibleadapter.items.IHeader;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StickyHeaderDecorationTest {
+
+	private static final int SECTION_SIZE = 3, SECTIONS = 2, FRAMES = 200;
+
+	private static class Header extends AbstractHeaderItem<RecyclerView.ViewHolder> {
+		@Override
+		public boolean equals(Object o) {
+			return this == o;
+		}
+	}
+
+	/**
+	 * Resolves the sticky headers of fixed sections and counts the ViewHolders created and bound.
+	 */
+	private static class StubAdapter extends FlexibleAdapter<IFlexible> {
+		final IHeader[] headers = new IHeader[SECTIONS];
+		int created, bound;
+
+		StubAdapter() {
+			super(new ArrayList<IFlexible>());
+			for (int i = 0; i < SECTIONS; i++) headers[i] = new Header();
+		}
+
+		@Override
+		public IHeader getHeaderStickyOn(int position) {
+			return headers[position / SECTION_SIZE];
+		}
+
+		@Override
+		int getHeaderStickyPositionOn(int position) {
+			return position - position % SECTION_SIZE;
+		}
+
+		@Override
+		public int getItemViewType(int position) {
+			return 1;
+		}
+
+		@Override
+		public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+			created++;
+			View itemView = mock(View.class);
+			when(itemView.getLayoutParams()).thenReturn(new ViewGroup.LayoutParams(
+					ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+			return new RecyclerView.ViewHolder(itemView) {
+			};
+		}
+
+		@Override
+		public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+			bound++;
+		}
+	}
+
+	private static class Recorder implements StickyHeaderDecoration.OnDrawListener {
+		int frames, boundHeaders, createdHolders;
+
+		@Override
+		public void onStickyHeaderDrawn(long drawTimeNanos, int boundHeaders, int createdHolders) {
+			frames++;
+			this.boundHeaders += boundHeaders;
+			this.createdHolders += createdHolders;
+		}
+	}
+
+	private final Canvas canvas = mock(Canvas.class);
+	private final RecyclerView recyclerView = mock(RecyclerView.class);
+	private final View firstChild = mock(View.class), secondChild = mock(View.class);
+	private StubAdapter adapter;
+	private StickyHeaderDecoration decoration;
+
+	@Before
+	public void setUp() {
+		adapter = new StubAdapter();
+		decoration = new StickyHeaderDecoration(adapter, SECTIONS);
+		when(recyclerView.getChildCount()).thenReturn(2);
+		when(recyclerView.getChildAt(0)).thenReturn(firstChild);
+		when(recyclerView.getChildAt(1)).thenReturn(secondChild);
+	}
+
+	/**
+	 * Draws the frame where the first visible item is at the passed position.
+	 */
+	private void drawAt(int position) {
+		when(recyclerView.getChildAdapterPosition(firstChild)).thenReturn(position);
+		when(recyclerView.getChildAdapterPosition(secondChild)).thenReturn(position + 1);
+		decoration.onDrawOver(canvas, recyclerView, null);
+	}
+
+	@Test
+	public void cachedHeaders_areNotBoundAgain() {
+		//The last item of the first section draws both headers
+		drawAt(SECTION_SIZE - 1);
+		assertEquals(SECTIONS, adapter.created);
+		assertEquals(SECTIONS, adapter.bound);
+
+		Recorder recorder = new Recorder();
+		decoration.setOnDrawListener(recorder);
+		int last = SECTION_SIZE * SECTIONS - 2;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			//Scroll down and up through all the sections
+			int position = frame % (2 * last);
+			drawAt(position <= last ? position : 2 * last - position);
+		}
+		assertEquals(FRAMES, recorder.frames);
+		assertEquals(0, recorder.boundHeaders);
+		assertEquals(0, recorder.createdHolders);
+		assertEquals(SECTIONS, adapter.created);
+		assertEquals(SECTIONS, adapter.bound);
+		assertEquals(SECTIONS, decoration.getCacheMissCount());
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import eu.davidea.flexibleadapter.items.AbstractFlexibleItem;
+
+/**
+ * Item identified by its id, with a content that does not take part in {@code equals()}.
+ */
+public class TestItem extends AbstractFlexibleItem<RecyclerView.ViewHolder> {
+
+	final String id;
+	String content;
+	//The stable id can be forced to simulate collisions
+	Long stableId;
+
+	public TestItem(String id) {
+		this(id, null);
+	}
+
+	public TestItem(String id, String content) {
+		this.id = id;
+		this.content = content;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof TestItem && id.equals(((TestItem) o).id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+	@Override
+	public long getStableId() {
+		return stableId != null ? stableId : super.getStableId();
+	}
+
+	@Override
+	public String toString() {
+		return id;
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ChunkedListTest {
+
+	private static List<Integer> range(int from, int count) {
+		List<Integer> items = new ArrayList<Integer>(count);
+		for (int i = 0; i < count; i++) items.add(from + i);
+		return items;
+	}
+
+	@Test
+	public void addAll_inTheMiddleSplitsTheChunks() {
+		ChunkedList<Integer> list = new ChunkedList<Integer>(4);
+		list.addAll(range(0, 10));
+		list.addAll(5, range(100, 9));
+		List<Integer> expected = range(0, 10);
+		expected.addAll(5, range(100, 9));
+		assertEquals(expected, list);
+		assertEquals(expected, Arrays.asList(list.toArray()));
+	}
+
+	@Test
+	public void removeRange_acrossTheChunks() {
+		ChunkedList<Integer> list = new ChunkedList<Integer>(4);
+		list.addAll(range(0, 30));
+		list.subList(3, 22).clear();
+		List<Integer> expected = range(0, 30);
+		expected.subList(3, 22).clear();
+		assertEquals(expected, list);
+		list.subList(0, list.size()).clear();
+		assertEquals(0, list.size());
+		list.add(7);
+		assertEquals(Arrays.asList(7), list);
+	}
+
+	@Test
+	public void randomOperationsMatchArrayList() {
+		Random random = new Random(1);
+		ChunkedList<Integer> list = new ChunkedList<Integer>(5);
+		List<Integer> reference = new ArrayList<Integer>();
+		for (int step = 0; step < 5000; step++) {
+			int size = reference.size();
+			switch (random.nextInt(6)) {
+				case 0:
+					int position = random.nextInt(size + 1);
+					list.add(position, step);
+					reference.add(position, step);
+					break;
+				case 1:
+					position = random.nextInt(size + 1);
+					List<Integer> items = range(step * 100, random.nextInt(12));
+					list.addAll(position, items);
+					reference.addAll(position, items);
+					break;
+				case 2:
+					if (size == 0) break;
+					position = random.nextInt(size);
+					assertEquals(reference.remove(position), list.remove(position));
+					break;
+				case 3:
+					int from = random.nextInt(size + 1);
+					int to = from + random.nextInt(size - from + 1);
+					list.subList(from, to).clear();
+					reference.subList(from, to).clear();
+					break;
+				case 4:
+					if (size == 0) break;
+					position = random.nextInt(size);
+					assertEquals(reference.set(position, -step), list.set(position, -step));
+					break;
+				default:
+					if (size > 0) {
+						position = random.nextInt(size);
+						assertEquals(reference.get(position), list.get(position));
+					}
+			}
+			assertEquals(reference.size(), list.size());
+		}
+		assertEquals(reference, list);
+	}
+
+	@Test
+	public void get_outOfBoundsThrows() {
+		ChunkedList<Integer> list = new ChunkedList<Integer>(range(0, 3));
+		try {
+			list.get(3);
+			fail("Index out of bounds expected");
+		} catch (IndexOutOfBoundsException expected) {
+			//Expected
+		}
+	}
+
+}
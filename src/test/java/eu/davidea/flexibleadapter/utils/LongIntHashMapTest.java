@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void putGetAndOverwrite() {
+		LongIntHashMap map = new LongIntHashMap();
+		map.put(1L, 10);
+		map.put(Long.MAX_VALUE, 20);
+		map.put(-5L, 30);
+		map.put(1L, 11);
+		assertEquals(3, map.size());
+		assertEquals(11, map.get(1L, -1));
+		assertEquals(20, map.get(Long.MAX_VALUE, -1));
+		assertEquals(30, map.get(-5L, -1));
+		assertEquals(-1, map.get(2L, -1));
+	}
+
+	@Test
+	public void growsBeyondTheInitialCapacity() {
+		LongIntHashMap map = new LongIntHashMap(2);
+		for (int i = 0; i < 10000; i++) map.put(i * 31L, i);
+		assertEquals(10000, map.size());
+		for (int i = 0; i < 10000; i++) assertEquals(i, map.get(i * 31L, -1));
+	}
+
+	@Test
+	public void remove_keepsTheOtherEntriesReachable() {
+		//A nearly full table has long clusters, removing any key must not break them
+		long[] keys = new long[7];
+		for (int i = 0; i < keys.length; i++) keys[i] = i * 16L;
+		for (int removed = 0; removed < keys.length; removed++) {
+			LongIntHashMap map = new LongIntHashMap();
+			for (int i = 0; i < keys.length; i++) map.put(keys[i], i);
+			assertTrue(map.remove(keys[removed]));
+			assertFalse(map.remove(keys[removed]));
+			assertFalse(map.containsKey(keys[removed]));
+			assertEquals(keys.length - 1, map.size());
+			for (int i = 0; i < keys.length; i++) {
+				if (i != removed) assertEquals(i, map.get(keys[i], -1));
+			}
+		}
+	}
+
+	@Test
+	public void remove_randomOperationsMatchHashMap() {
+		Random random = new Random(42);
+		LongIntHashMap map = new LongIntHashMap();
+		Map<Long, Integer> reference = new HashMap<Long, Integer>();
+		for (int i = 0; i < 200000; i++) {
+			//Few distinct keys, so the clusters are continuously broken and rebuilt
+			long key = random.nextInt(512) * 0x100000001L;
+			if (random.nextInt(3) == 0) {
+				assertEquals(reference.remove(key) != null, map.remove(key));
+			} else {
+				map.put(key, i);
+				reference.put(key, i);
+			}
+		}
+		assertEquals(reference.size(), map.size());
+		for (int k = 0; k < 512; k++) {
+			long key = k * 0x100000001L;
+			Integer value = reference.get(key);
+			assertEquals(value != null ? value : -1, map.get(key, -1));
+		}
+	}
+
+	@Test
+	public void clear_removesAllTheEntries() {
+		LongIntHashMap map = new LongIntHashMap();
+		for (int i = 0; i < 100; i++) map.put(i, i);
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(5L));
+		map.put(5L, 1);
+		assertEquals(1, map.get(5L, -1));
+	}
+
+}
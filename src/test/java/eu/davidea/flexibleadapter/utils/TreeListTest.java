@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Davide Steduto
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.davidea.flexibleadapter.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TreeListTest {
+
+	private static List<String> strings(String... items) {
+		return new ArrayList<String>(Arrays.asList(items));
+	}
+
+	@Test
+	public void indexOf_returnsTheFirstOccurrence() {
+		String b = "b";
+		TreeList<String> list = new TreeList<String>(strings("a", b, "c"));
+		//Same instance added later
+		list.add(b);
+		assertEquals(1, list.indexOf(b));
+		assertEquals(3, list.lastIndexOf(b));
+		//Equal instance added before
+		list.add(0, new String("b"));
+		assertEquals(0, list.indexOf(b));
+		list.remove(0);
+		assertEquals(1, list.indexOf(b));
+		list.remove(1);
+		assertEquals(2, list.indexOf(new String("b")));
+		list.remove(2);
+		assertEquals(-1, list.indexOf(b));
+		assertFalse(list.contains(b));
+	}
+
+	@Test
+	public void set_updatesTheIndex() {
+		TreeList<String> list = new TreeList<String>(strings("a", "b", "a"));
+		list.set(0, "z");
+		assertEquals(2, list.indexOf("a"));
+		assertEquals(0, list.indexOf("z"));
+		list.set(2, "b");
+		assertEquals(1, list.indexOf("b"));
+		assertFalse(list.contains("a"));
+	}
+
+	@Test
+	public void splitAndMerge_keepTheOrder() {
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++) expected.add(i);
+		TreeList<Integer> list = new TreeList<Integer>(expected);
+		//Range removals split the tree twice and merge the remaining parts
+		list.subList(100, 900).clear();
+		expected.subList(100, 900).clear();
+		assertEquals(expected, list);
+		list.addAll(50, Arrays.asList(-1, -2, -3));
+		expected.addAll(50, Arrays.asList(-1, -2, -3));
+		assertEquals(expected, list);
+		assertEquals(52, list.indexOf(-3));
+		assertEquals(-1, list.indexOf(500));
+		list.subList(0, list.size()).clear();
+		assertTrue(list.isEmpty());
+		list.add(5);
+		assertEquals(Arrays.asList(5), list);
+	}
+
+	@Test
+	public void randomOperations_matchArrayList() {
+		Random random = new Random(3);
+		TreeList<Integer> list = new TreeList<Integer>();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int step = 0; step < 5000; step++) {
+			int size = expected.size();
+			int operation = random.nextInt(6);
+			//Few values, to have many equal items
+			Integer value = random.nextInt(50);
+			if (operation == 0 || size == 0) {
+				int position = random.nextInt(size + 1);
+				list.add(position, value);
+				expected.add(position, value);
+			} else if (operation == 1) {
+				int position = random.nextInt(size + 1);
+				List<Integer> items = Arrays.asList(value, value + 1, value + 2);
+				list.addAll(position, items);
+				expected.addAll(position, items);
+			} else if (operation == 2) {
+				int position = random.nextInt(size);
+				assertEquals(expected.remove(position), list.remove(position));
+			} else if (operation == 3) {
+				int from = random.nextInt(size), to = from + random.nextInt(Math.min(5, size - from) + 1);
+				list.subList(from, to).clear();
+				expected.subList(from, to).clear();
+			} else if (operation == 4) {
+				int position = random.nextInt(size);
+				assertEquals(expected.set(position, value), list.set(position, value));
+			} else {
+				assertEquals(expected.indexOf(value), list.indexOf(value));
+			}
+			assertEquals(expected.size(), list.size());
+		}
+		assertEquals(expected, list);
+		for (int value = -1; value < 55; value++) {
+			assertEquals(expected.indexOf(value), list.indexOf(value));
+		}
+	}
+
+}